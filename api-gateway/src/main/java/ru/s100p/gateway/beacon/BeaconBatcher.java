@@ -0,0 +1,143 @@
+package ru.s100p.gateway.beacon;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import ru.s100p.gateway.support.MpscRingBuffer;
+import ru.s100p.shared.events.UserActivityBatchEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static ru.s100p.shared.constants.KafkaTopicNames.USER_ACTIVITY_TOPIC;
+
+/**
+ * Накопление событий активности и отправка их пачками в {@code user_activity_topic}.
+ *
+ * <p>Обработчик запроса только кладет события в кольцевой буфер без блокировок и сразу отвечает клиенту.
+ * Отдельный поток собирает пачку до {@code batch-size} событий или до истечения {@code linger} с момента
+ * первого события в пачке и отправляет ее одной записью {@link UserActivityBatchEvent}. Если поток
+ * не успевает и буфер заполнен, события отбрасываются: телеметрия не должна замедлять обработку запросов.</p>
+ */
+@Slf4j
+@Component
+public class BeaconBatcher {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final BeaconProperties properties;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final MpscRingBuffer<UserActivityBatchEvent.Activity> buffer;
+    private final MeterRegistry meterRegistry;
+    private final Counter batches;
+    private final Thread senderThread;
+    private volatile boolean running = true;
+
+    public BeaconBatcher(BeaconProperties properties, KafkaTemplate<String, Object> kafkaTemplate,
+                         MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.buffer = new MpscRingBuffer<>(properties.getBufferCapacity());
+        this.batches = Counter.builder("gateway.beacon.batches")
+                .description("Activity batches sent to Kafka")
+                .register(meterRegistry);
+        this.senderThread = new Thread(this::sendLoop, "beacon-batcher");
+        this.senderThread.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() {
+        senderThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(senderThread);
+        senderThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Постановка события в очередь на отправку
+     *
+     * @return false — буфер заполнен, событие отброшено
+     */
+    public boolean offer(UserActivityBatchEvent.Activity activity) {
+        return buffer.offer(activity);
+    }
+
+    void count(String result, int events) {
+        Counter.builder("gateway.beacon.events")
+                .description("Client activity events by result (accepted, dropped = buffer full, invalid = rejected or"
+                        + " client timestamp out of window, failed = Kafka error)")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment(events);
+    }
+
+    private void sendLoop() {
+        long lingerNanos = properties.getLinger().toNanos();
+        List<UserActivityBatchEvent.Activity> batch = new ArrayList<>(properties.getBatchSize());
+        long batchStartedNanos = 0;
+        while (running) {
+            UserActivityBatchEvent.Activity activity = buffer.poll();
+            if (activity != null) {
+                if (batch.isEmpty()) {
+                    batchStartedNanos = System.nanoTime();
+                }
+                batch.add(activity);
+                if (batch.size() >= properties.getBatchSize()) {
+                    batch = send(batch);
+                }
+            } else if (!batch.isEmpty() && System.nanoTime() - batchStartedNanos >= lingerNanos) {
+                batch = send(batch);
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        // Остаток буфера при остановке
+        UserActivityBatchEvent.Activity activity;
+        while ((activity = buffer.poll()) != null) {
+            batch.add(activity);
+            if (batch.size() >= properties.getBatchSize()) {
+                batch = send(batch);
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+        kafkaTemplate.flush();
+    }
+
+    /**
+     * Асинхронная отправка пачки
+     *
+     * @return новый пустой список для следующей пачки
+     */
+    private List<UserActivityBatchEvent.Activity> send(List<UserActivityBatchEvent.Activity> batch) {
+        UserActivityBatchEvent event = new UserActivityBatchEvent();
+        event.setActivities(batch);
+        int size = batch.size();
+        try {
+            // Без ключа: записи распределяются по партициям пачками продюсера, а не по пользователям
+            kafkaTemplate.send(USER_ACTIVITY_TOPIC, event).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    count("failed", size);
+                    log.warn("Не удалось отправить пачку из {} событий активности: {}", size, ex.getMessage());
+                }
+            });
+            batches.increment();
+        } catch (RuntimeException ex) {
+            count("failed", size);
+            log.warn("Не удалось отправить пачку из {} событий активности: {}", size, ex.getMessage());
+        }
+        return new ArrayList<>(properties.getBatchSize());
+    }
+}
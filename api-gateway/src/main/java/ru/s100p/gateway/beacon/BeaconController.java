@@ -0,0 +1,129 @@
+package ru.s100p.gateway.beacon;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import ru.s100p.gateway.filter.JwtAuthenticationGatewayFilterFactory;
+import ru.s100p.gateway.security.AccessTokenVerifier;
+import ru.s100p.gateway.security.AuthenticatedUser;
+import ru.s100p.shared.events.UserActivityBatchEvent;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Прием клиентских событий активности (beacon) пачкой в одном запросе.
+ *
+ * <p>События дополняются IP, User-Agent и ID пользователя из access токена, кладутся в {@link BeaconBatcher}
+ * и запрос сразу получает 202 — ни один сервис не участвует в синхронной обработке. Запрос без действительного
+ * токена получает 401: в {@code user_activity_logs} пользователь обязателен.</p>
+ *
+ * <p>Время события от клиента не проверено: вне окна {@code max-event-age} / {@code max-clock-skew} вокруг
+ * момента приема оно заменяется временем приема, а событие учитывается как {@code invalid}.</p>
+ */
+@RestController
+@RequiredArgsConstructor
+public class BeaconController {
+
+    public static final String BEACON_PATH = "/api/v1/beacon";
+
+    private static final Pattern ACTION = Pattern.compile("[A-Z][A-Z0-9_]{0,99}");
+    // Размеры колонок user_activity_logs
+    private static final int MAX_SESSION_ID = 100;
+    private static final int MAX_RESOURCE_TYPE = 50;
+    private static final int MAX_REFERER = 500;
+    private static final int MAX_USER_AGENT = 1000;
+
+    private final BeaconProperties properties;
+    private final BeaconBatcher batcher;
+    private final AccessTokenVerifier tokenVerifier;
+
+    @PostMapping(BEACON_PATH)
+    public Mono<ResponseEntity<Void>> collect(@RequestBody List<BeaconEvent> events, ServerHttpRequest request) {
+        if (!properties.isEnabled()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+        }
+        String token = JwtAuthenticationGatewayFilterFactory.extractToken(request);
+        if (token == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+        return tokenVerifier.verify(token)
+                .filter(user -> user.userId() != null)
+                .map(user -> {
+                    accept(user, events, request);
+                    return ResponseEntity.accepted().<Void>build();
+                })
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+    }
+
+    private void accept(AuthenticatedUser user, List<BeaconEvent> events, ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        String ipAddress = ipAddress(request);
+        String userAgent = truncate(headers.getFirst(HttpHeaders.USER_AGENT), MAX_USER_AGENT);
+        String requestReferer = headers.getFirst(HttpHeaders.REFERER);
+        Instant receivedInstant = Instant.now();
+        LocalDateTime receivedAt = LocalDateTime.ofInstant(receivedInstant, ZoneId.systemDefault());
+        long earliestMillis = receivedInstant.minus(properties.getMaxEventAge()).toEpochMilli();
+        long latestMillis = receivedInstant.plus(properties.getMaxClockSkew()).toEpochMilli();
+
+        int limit = Math.min(events.size(), properties.getMaxEventsPerRequest());
+        int accepted = 0;
+        int dropped = 0;
+        int invalid = events.size() - limit;
+        for (BeaconEvent event : events.subList(0, limit)) {
+            if (event == null || event.action() == null || !ACTION.matcher(event.action()).matches()) {
+                invalid++;
+                continue;
+            }
+            Long timestamp = event.timestamp();
+            boolean timestampInWindow = timestamp == null || (timestamp >= earliestMillis && timestamp <= latestMillis);
+            UserActivityBatchEvent.Activity activity = UserActivityBatchEvent.Activity.builder()
+                    .userId(user.userId())
+                    .sessionId(truncate(event.sessionId(), MAX_SESSION_ID))
+                    .action(event.action())
+                    .resourceType(truncate(event.resourceType(), MAX_RESOURCE_TYPE))
+                    .resourceId(event.resourceId())
+                    .ipAddress(ipAddress)
+                    .userAgent(userAgent)
+                    .referer(truncate(event.referer() != null ? event.referer() : requestReferer, MAX_REFERER))
+                    .metadata(event.metadata())
+                    .duration(event.duration())
+                    .occurredAt(timestamp != null && timestampInWindow
+                            ? LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault())
+                            : receivedAt)
+                    .build();
+            if (!batcher.offer(activity)) {
+                dropped++;
+            } else if (timestampInWindow) {
+                accepted++;
+            } else {
+                // Сохранено со временем приема, но время клиента отброшено
+                invalid++;
+            }
+        }
+        batcher.count("accepted", accepted);
+        batcher.count("dropped", dropped);
+        batcher.count("invalid", invalid);
+    }
+
+    private static String ipAddress(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        return remoteAddress != null && remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress()
+                : null;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.s100p.gateway.beacon;
+
+import java.util.Map;
+
+/**
+ * Событие активности в том виде, в котором его присылает клиент. IP, User-Agent и пользователь
+ * берутся из запроса, а не из тела.
+ *
+ * @param action       действие (COURSE_VIEW, LESSON_START, ...)
+ * @param resourceType тип ресурса (COURSE, LESSON, PAYMENT)
+ * @param resourceId   ID ресурса
+ * @param sessionId    сессия клиента
+ * @param referer      страница-источник (если не передана — заголовок Referer запроса)
+ * @param metadata     дополнительные данные
+ * @param duration     продолжительность действия в секундах
+ * @param timestamp    время события на клиенте (epoch millis); вне допустимого окна заменяется временем приема
+ */
+public record BeaconEvent(
+        String action,
+        String resourceType,
+        Long resourceId,
+        String sessionId,
+        String referer,
+        Map<String, Object> metadata,
+        Integer duration,
+        Long timestamp
+) {
+}
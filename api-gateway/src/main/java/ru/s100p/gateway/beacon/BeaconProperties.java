@@ -0,0 +1,31 @@
+package ru.s100p.gateway.beacon;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Настройки {@code gateway.beacon.*} из application.yml
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.beacon")
+public class BeaconProperties {
+
+    private boolean enabled = true;
+    // Событий в одном запросе клиента; остальные отбрасываются
+    private int maxEventsPerRequest = 50;
+    // Время события от клиента принимается, если оно не старше этого относительно момента приема
+    // (клиент может отправить накопленные без сети события позже)
+    private Duration maxEventAge = Duration.ofHours(1);
+    // Время события от клиента может опережать момент приема не больше чем на расхождение часов
+    private Duration maxClockSkew = Duration.ofMinutes(5);
+    // Событий, ожидающих отправки в Kafka; при заполнении новые события отбрасываются
+    private int bufferCapacity = 65536;
+    // Событий в одной записи Kafka
+    private int batchSize = 500;
+    // Неполная пачка отправляется не позже этого времени после первого события в ней
+    private Duration linger = Duration.ofMillis(200);
+}
@@ -0,0 +1,58 @@
+package ru.s100p.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import ru.s100p.gateway.compression.ContentEncoding;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Ответ upstream сервиса, сохраненный в {@link EdgeResponseCache}.
+ *
+ * @param status        HTTP статус (кешируется только 200)
+ * @param headers       заголовки ответа без hop-by-hop и Content-Length
+ * @param body          тело ответа
+ * @param encodedBodies тело, сжатое при сохранении, по кодировкам (пусто — не сжимается или сжатие не дало выигрыша)
+ * @param etag          ETag от upstream или вычисленный по телу
+ * @param upstreamEtag  ETag пришел от upstream (только его можно отправлять в If-None-Match при перепроверке)
+ * @param upstreamUri   адрес upstream запроса (после RewritePath) для фоновой перепроверки
+ * @param storedAtMs    момент получения ответа (для заголовка Age)
+ * @param freshUntilMs  до этого момента ответ отдается без перепроверки
+ * @param staleUntilMs  до этого момента устаревший ответ отдается, пока идет фоновая перепроверка
+ */
+public record CachedResponse(
+        int status,
+        HttpHeaders headers,
+        byte[] body,
+        Map<ContentEncoding, byte[]> encodedBodies,
+        String etag,
+        boolean upstreamEtag,
+        URI upstreamUri,
+        long storedAtMs,
+        long freshUntilMs,
+        long staleUntilMs
+) {
+
+    public boolean isFresh(long nowMs) {
+        return nowMs < freshUntilMs;
+    }
+
+    public boolean isServableStale(long nowMs) {
+        return nowMs < staleUntilMs;
+    }
+
+    public long ageSeconds(long nowMs) {
+        return Math.max(0, (nowMs - storedAtMs) / 1000);
+    }
+
+    /**
+     * Примерный размер записи в байтах для ограничения объема кеша
+     */
+    public int weight() {
+        int headersSize = headers.entrySet().stream()
+                .mapToInt(e -> e.getKey().length() + e.getValue().stream().mapToInt(String::length).sum())
+                .sum();
+        int encodedSize = encodedBodies.values().stream().mapToInt(encoded -> encoded.length).sum();
+        return body.length + encodedSize + headersSize + 128;
+    }
+}
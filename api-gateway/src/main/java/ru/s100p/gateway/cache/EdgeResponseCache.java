@@ -0,0 +1,319 @@
+package ru.s100p.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.s100p.gateway.compression.ContentEncoding;
+import ru.s100p.gateway.compression.ResponseCompressor;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кеш ответов upstream сервисов на gateway (фильтр маршрута {@code EdgeCache}).
+ *
+ * <p>Объем ограничен суммарным размером записей ({@code gateway.edge-cache.max-size-bytes}), слишком
+ * большие ответы не кешируются. Свежесть берется из {@code Cache-Control} ответа ({@code s-maxage},
+ * {@code max-age}, {@code stale-while-revalidate}), а при его отсутствии — из настроек по умолчанию.
+ * Ответы с {@code no-store}, {@code no-cache}, {@code private} или {@code Set-Cookie} не кешируются.
+ * Сжимаемые ответы сохраняются сразу и сжатыми во всех кодировках, разрешенных для их типа (brotli, gzip),
+ * чтобы попадание в кеш никогда не сжимало тело заново.</p>
+ *
+ * <p>Устаревшая запись в пределах stale-while-revalidate отдается клиенту сразу, а перепроверка
+ * (условный GET с If-None-Match) выполняется в фоне, не более одной на ключ.
+ * {@link #invalidateAll()} увеличивает поколение кеша, поэтому ответы на запросы, начатые до сброса,
+ * уже не попадут в кеш.</p>
+ */
+@Slf4j
+@Component
+public class EdgeResponseCache {
+
+    // HIT — свежая запись, STALE — устаревшая запись с фоновой перепроверкой, MISS — ответ upstream
+    public static final String X_CACHE = "X-Cache";
+
+    private static final Set<String> EXCLUDED_HEADERS = Set.of(
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION,
+            HttpHeaders.DATE, HttpHeaders.SET_COOKIE, HttpHeaders.AGE, "Keep-Alive", X_CACHE);
+
+    private static final Duration REVALIDATION_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Cache<String, CachedResponse> cache;
+    private final WebClient webClient;
+    private final ResponseCompressor compressor;
+    private final AtomicLong generation = new AtomicLong();
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+    @Value("${gateway.edge-cache.max-entry-bytes:1048576}")
+    private int maxEntryBytes;
+
+    @Value("${gateway.edge-cache.default-ttl:60s}")
+    private Duration defaultTtl;
+
+    @Value("${gateway.edge-cache.default-stale-while-revalidate:30s}")
+    private Duration defaultStaleWhileRevalidate;
+
+    public EdgeResponseCache(WebClient.Builder webClientBuilder,
+                             ResponseCompressor compressor,
+                             MeterRegistry meterRegistry,
+                             @Value("${gateway.edge-cache.max-size-bytes:67108864}") long maxSizeBytes) {
+        this.webClient = webClientBuilder.build();
+        this.compressor = compressor;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSizeBytes)
+                .weigher((String key, CachedResponse entry) -> entry.weight())
+                .expireAfter(new UntilStale())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "edge-response-cache");
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Текущее поколение кеша: запоминается в начале запроса и передается в {@link #store}
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public int maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * Сохранение ответа, если он кешируемый. ETag по телу и сжатые копии вычисляются на
+     * {@code Schedulers.boundedElastic()}: для тела до {@code max-entry-bytes} это миллисекунды CPU,
+     * которые нельзя тратить в event loop.
+     *
+     * @return сохраненная запись; пусто, если ответ не кешируется или кеш был сброшен во время запроса
+     */
+    public Mono<CachedResponse> store(String key, long generationAtStart, HttpStatus status, HttpHeaders headers,
+                                      byte[] body, URI upstreamUri) {
+        CacheDirectives directives = cacheableDirectives(status, headers, body.length);
+        if (directives == null) {
+            return Mono.empty();
+        }
+        HttpHeaders stored = storedHeaders(headers);
+        String upstreamEtag = headers.getETag();
+        return Mono.fromCallable(() -> {
+                    boolean hasUpstreamEtag = StringUtils.hasText(upstreamEtag);
+                    Map<ContentEncoding, byte[]> encodedBodies = compressor.compressAll(body,
+                            compressor.encodingsFor(stored.getContentType(), body.length),
+                            ResponseCompressor.SOURCE_CACHE);
+                    return put(key, generationAtStart, directives, stored, body, encodedBodies,
+                            hasUpstreamEtag ? upstreamEtag : computeEtag(body), hasUpstreamEtag, upstreamUri);
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Обновление записи после 304 при перепроверке: тело, сжатые копии и ETag прежние, без повторного
+     * хеширования и сжатия; обновляются заголовки и сроки свежести
+     */
+    private CachedResponse refresh(String key, long generationAtStart, CachedResponse entry, HttpHeaders headers) {
+        CacheDirectives directives = cacheableDirectives(HttpStatus.OK, headers, entry.body().length);
+        if (directives == null) {
+            return null;
+        }
+        return put(key, generationAtStart, directives, storedHeaders(headers), entry.body(), entry.encodedBodies(),
+                entry.etag(), entry.upstreamEtag(), entry.upstreamUri());
+    }
+
+    /**
+     * Директивы кешируемого ответа или null, если ответ не кешируется
+     */
+    private CacheDirectives cacheableDirectives(HttpStatus status, HttpHeaders headers, int bodyLength) {
+        if (status != HttpStatus.OK || bodyLength > maxEntryBytes || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return null;
+        }
+        CacheDirectives directives = CacheDirectives.parse(headers.getCacheControl());
+        if (directives.noStore() || directives.noCache() || directives.isPrivate()) {
+            return null;
+        }
+        return directives;
+    }
+
+    private static HttpHeaders storedHeaders(HttpHeaders headers) {
+        HttpHeaders stored = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            if (EXCLUDED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                stored.put(name, List.copyOf(values));
+            }
+        });
+        return stored;
+    }
+
+    private CachedResponse put(String key, long generationAtStart, CacheDirectives directives, HttpHeaders stored,
+                               byte[] body, Map<ContentEncoding, byte[]> encodedBodies, String etag, boolean upstreamEtag, URI upstreamUri) {
+        long now = System.currentTimeMillis();
+        long freshMs = directives.maxAgeSeconds() >= 0
+                ? TimeUnit.SECONDS.toMillis(directives.maxAgeSeconds())
+                : defaultTtl.toMillis();
+        long staleMs = directives.mustRevalidate() ? 0
+                : directives.staleWhileRevalidateSeconds() >= 0
+                ? TimeUnit.SECONDS.toMillis(directives.staleWhileRevalidateSeconds())
+                : defaultStaleWhileRevalidate.toMillis();
+
+        stored.setETag(etag);
+        if (!encodedBodies.isEmpty()) {
+            ResponseCompressor.addVaryAcceptEncoding(stored);
+        }
+
+        CachedResponse entry = new CachedResponse(HttpStatus.OK.value(), HttpHeaders.readOnlyHttpHeaders(stored), body,
+                encodedBodies, etag, upstreamEtag, upstreamUri, now, now + freshMs, now + freshMs + staleMs);
+        if (generation.get() != generationAtStart) {
+            return null;
+        }
+        cache.put(key, entry);
+        // Сброс между проверкой и put: invalidateAll сначала увеличивает поколение, затем очищает кеш, поэтому
+        // либо повторная проверка видит новое поколение, либо очистка идет уже после put. Удаляется только
+        // своя запись — запись нового поколения под тем же ключом остается
+        if (generation.get() != generationAtStart) {
+            cache.asMap().remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Фоновая перепроверка устаревшей записи условным GET (не более одной одновременно на ключ)
+     */
+    public void revalidateInBackground(String key, CachedResponse entry) {
+        if (entry.upstreamUri() == null || !revalidating.add(key)) {
+            return;
+        }
+        long generationAtStart = generation();
+        webClient.get()
+                .uri(entry.upstreamUri())
+                .headers(headers -> {
+                    if (entry.upstreamEtag()) {
+                        headers.setIfNoneMatch(entry.etag());
+                    }
+                })
+                .exchangeToMono(response -> {
+                    if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                        // Тело не изменилось: сохраняем прежнее (и его сжатые копии) с новыми сроками свежести
+                        HttpHeaders headers = new HttpHeaders();
+                        headers.putAll(entry.headers());
+                        headers.putAll(response.headers().asHttpHeaders());
+                        refresh(key, generationAtStart, entry, headers);
+                        return response.releaseBody();
+                    }
+                    if (response.statusCode().value() == HttpStatus.OK.value()) {
+                        HttpHeaders headers = response.headers().asHttpHeaders();
+                        return response.bodyToMono(byte[].class)
+                                .defaultIfEmpty(new byte[0])
+                                .flatMap(body -> store(key, generationAtStart, HttpStatus.OK, headers, body, entry.upstreamUri()))
+                                .then();
+                    }
+                    return response.releaseBody();
+                })
+                .timeout(REVALIDATION_TIMEOUT)
+                .doFinally(signal -> revalidating.remove(key))
+                .subscribe(null, ex -> log.debug("Фоновая перепроверка {} не удалась: {}", key, ex.getMessage()));
+    }
+
+    private static String computeEtag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * Запись хранится, пока ее можно отдавать хотя бы как устаревшую
+     */
+    private static final class UntilStale implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse entry, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.staleUntilMs() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Директивы Cache-Control ответа, влияющие на общий (shared) кеш. -1 — директива отсутствует.
+     */
+    private record CacheDirectives(boolean noStore, boolean noCache, boolean isPrivate, boolean mustRevalidate,
+                                   long maxAgeSeconds, long staleWhileRevalidateSeconds) {
+
+        static CacheDirectives parse(String cacheControl) {
+            boolean noStore = false;
+            boolean noCache = false;
+            boolean isPrivate = false;
+            boolean mustRevalidate = false;
+            long maxAge = -1;
+            long sMaxAge = -1;
+            long staleWhileRevalidate = -1;
+
+            if (cacheControl != null) {
+                for (String directive : cacheControl.split(",")) {
+                    String[] parts = directive.trim().split("=", 2);
+                    String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                    long value = parts.length > 1 ? parseSeconds(parts[1]) : -1;
+                    switch (name) {
+                        case "no-store" -> noStore = true;
+                        case "no-cache" -> noCache = true;
+                        case "private" -> isPrivate = true;
+                        case "must-revalidate", "proxy-revalidate" -> mustRevalidate = true;
+                        case "max-age" -> maxAge = value;
+                        case "s-maxage" -> sMaxAge = value;
+                        case "stale-while-revalidate" -> staleWhileRevalidate = value;
+                        default -> {
+                        }
+                    }
+                }
+            }
+            return new CacheDirectives(noStore, noCache, isPrivate, mustRevalidate,
+                    sMaxAge >= 0 ? sMaxAge : maxAge, staleWhileRevalidate);
+        }
+
+        private static long parseSeconds(String value) {
+            try {
+                return Long.parseLong(value.trim().replace("\"", ""));
+            } catch (NumberFormatException ex) {
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.s100p.gateway.coalescing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки {@code gateway.coalescing.*} из application.yml
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.coalescing")
+public class CoalescingProperties {
+
+    private boolean enabled = true;
+    // ID маршрутов, для которых одинаковые GET запросы объединяются
+    private List<String> routes = new ArrayList<>();
+    // Заголовки запроса, от которых может зависеть ответ (входят в ключ)
+    private List<String> varyHeaders = new ArrayList<>(List.of("Authorization", "Accept", "Accept-Encoding", "Accept-Language", "If-None-Match"));
+    // Ответы больше этого размера не раздаются ожидающим запросам
+    private long maxBodyBytes = 1024 * 1024;
+    // Сколько ожидающий запрос ждет ответа ведущего, прежде чем пойти в upstream сам
+    private Duration followerTimeout = Duration.ofSeconds(10);
+}
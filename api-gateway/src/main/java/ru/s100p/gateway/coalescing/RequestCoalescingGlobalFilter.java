@@ -0,0 +1,201 @@
+package ru.s100p.gateway.coalescing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import ru.s100p.gateway.filter.EdgeCacheGatewayFilterFactory;
+import ru.s100p.gateway.support.BoundedBody;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Объединение одновременных одинаковых GET запросов (single-flight) для маршрутов из {@code gateway.coalescing.routes}.
+ *
+ * <p>Ключ — маршрут, путь, query и значения {@code vary-headers} (в том числе Authorization, поэтому ответы
+ * разным пользователям не смешиваются). Первый запрос с ключом становится ведущим и идет в upstream,
+ * остальные, пришедшие до его ответа, ждут и получают копию того же статуса, заголовков и тела.
+ * Если ведущий не смог раздать ответ (ошибка, отмена, слишком большое или потоковое тело, таймаут),
+ * ожидающие запросы выполняются самостоятельно.</p>
+ *
+ * <p>Фильтр выполняется до {@link NettyWriteResponseFilter} (иначе ответ ведущего не пройдет через декоратор)
+ * и до фильтра {@code EdgeCache}: ожидающие получают уже подготовленный кешем ответ ведущего (в том числе
+ * заранее сжатое тело), а не сжимают и не кешируют его повторно. Ожидающие запросы не проходят
+ * фильтры маршрута — они получают ровно тот ответ, который получил ведущий с теми же заголовками.</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RequestCoalescingGlobalFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = EdgeCacheGatewayFilterFactory.ORDER - 1;
+
+    private static final Set<String> EXCLUDED_HEADERS = Set.of(
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION, "Keep-Alive");
+
+    private final CoalescingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, Sinks.One<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Ответ ведущего запроса, раздаваемый ожидающим
+     */
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || route == null || request.getMethod() != HttpMethod.GET
+                || !properties.getRoutes().contains(route.getId())) {
+            return chain.filter(exchange);
+        }
+
+        String key = coalescingKey(route, request);
+        Sinks.One<SharedResponse> sink = Sinks.one();
+        Sinks.One<SharedResponse> leader = inFlight.putIfAbsent(key, sink);
+
+        if (leader != null) {
+            count(route, "follower");
+            return leader.asMono()
+                    .timeout(properties.getFollowerTimeout())
+                    .map(Optional::of)
+                    .onErrorReturn(Optional.empty())
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(shared -> {
+                        if (shared.isPresent()) {
+                            return writeShared(exchange, shared.get());
+                        }
+                        count(route, "fallback");
+                        return chain.filter(exchange);
+                    });
+        }
+
+        count(route, "leader");
+        SharingResponse sharingResponse = new SharingResponse(exchange, key, sink);
+        return chain.filter(exchange.mutate().response(sharingResponse).build())
+                .doFinally(signal -> sharingResponse.publish(null));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private String coalescingKey(Route route, ServerHttpRequest request) {
+        StringBuilder key = new StringBuilder(route.getId()).append(' ').append(request.getURI().getRawPath());
+        if (request.getURI().getRawQuery() != null) {
+            key.append('?').append(request.getURI().getRawQuery());
+        }
+        for (String header : properties.getVaryHeaders()) {
+            key.append('\n').append(header).append(':').append(request.getHeaders().getValuesAsList(header));
+        }
+        return key.toString();
+    }
+
+    private Mono<Void> writeShared(ServerWebExchange exchange, SharedResponse shared) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(shared.status());
+        shared.headers().forEach((name, values) -> {
+            if (EXCLUDED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                response.getHeaders().put(name, values);
+            }
+        });
+        if (shared.body().length == 0) {
+            return response.setComplete();
+        }
+        response.getHeaders().setContentLength(shared.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    private void count(Route route, String role) {
+        Counter.builder("gateway.coalescing.requests")
+                .description("GET requests by role in request coalescing (follower = served without an upstream call)")
+                .tag("route", route.getId())
+                .tag("role", role)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Ответ ведущего запроса: копирует тело и раздает его ожидающим, затем пишет клиенту как обычно
+     */
+    private class SharingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String key;
+        private final Sinks.One<SharedResponse> sink;
+
+        SharingResponse(ServerWebExchange exchange, String key, Sinks.One<SharedResponse> sink) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.sink = sink;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            MediaType contentType = getHeaders().getContentType();
+            boolean streaming = contentType != null && (MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)
+                    || MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType));
+            if (streaming || getStatusCode() == null || getHeaders().getContentLength() > properties.getMaxBodyBytes()) {
+                publish(null);
+                return super.writeWith(body);
+            }
+
+            // Длина может быть неизвестна (chunked): накопление ограничено max-body-bytes. При превышении
+            // ожидающие выполняются сами, а тело идет клиенту потоком
+            return BoundedBody.collect(body, properties.getMaxBodyBytes(), bytes -> {
+                publish(bytes);
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            }, overflow -> {
+                publish(null);
+                return super.writeWith(overflow);
+            });
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            publish(new byte[0]);
+            return super.setComplete();
+        }
+
+        /**
+         * Раздача ответа ожидающим (null — ответ не раздается, ожидающие выполнятся сами). Повторные вызовы игнорируются.
+         */
+        void publish(byte[] body) {
+            // Сначала убираем ключ: запросы, пришедшие после ответа, пойдут в upstream за свежими данными
+            inFlight.remove(key, sink);
+            if (body == null || getStatusCode() == null) {
+                sink.tryEmitEmpty();
+                return;
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(getHeaders());
+            sink.tryEmitValue(new SharedResponse(getStatusCode(), headers, body));
+        }
+    }
+}
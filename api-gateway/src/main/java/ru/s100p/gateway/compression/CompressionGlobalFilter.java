@@ -0,0 +1,97 @@
+package ru.s100p.gateway.compression;
+
+import lombok.RequiredArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import ru.s100p.gateway.coalescing.RequestCoalescingGlobalFilter;
+import ru.s100p.gateway.support.BoundedBody;
+
+import java.util.Set;
+
+/**
+ * Сжатие ответов на лету (brotli или gzip) для клиентов, приславших подходящий {@code Accept-Encoding}.
+ *
+ * <p>Сжимаются только ответы 2xx, тип которых подходит под правило {@code gateway.compression.rules}, не меньше
+ * порога правила и не больше {@code max-size-bytes}, которые еще не сжаты (нет {@code Content-Encoding}).
+ * Кодировка выбирается по типу ответа, см. {@link ResponseCompressor}.
+ * Ответы из кеша {@code EdgeCache} приходят сюда уже сжатыми заранее и повторно не сжимаются.</p>
+ *
+ * <p>Фильтр выполняется раньше объединения запросов и {@code EdgeCache}: его декоратор обрабатывает тело
+ * последним, непосредственно перед отправкой клиенту. Ответы ожидающих в {@link RequestCoalescingGlobalFilter}
+ * тоже проходят через этот декоратор.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class CompressionGlobalFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = RequestCoalescingGlobalFilter.ORDER - 1;
+
+    private final ResponseCompressor compressor;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!compressor.isEnabled() || exchange.getRequest().getMethod() == HttpMethod.HEAD) {
+            return chain.filter(exchange);
+        }
+        Set<ContentEncoding> accepted = ResponseCompressor.acceptedEncodings(exchange.getRequest().getHeaders());
+        if (accepted.isEmpty()) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange.mutate().response(new CompressingResponse(exchange.getResponse(), accepted)).build());
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final Set<ContentEncoding> accepted;
+
+        CompressingResponse(ServerHttpResponse delegate, Set<ContentEncoding> accepted) {
+            super(delegate);
+            this.accepted = accepted;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            HttpStatusCode status = getStatusCode();
+            if (headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+                    || (status != null && (!status.is2xxSuccessful() || status.value() == HttpStatus.PARTIAL_CONTENT.value()))
+                    || ResponseCompressor.select(accepted,
+                    compressor.encodingsFor(headers.getContentType(), headers.getContentLength())) == null) {
+                return super.writeWith(body);
+            }
+
+            // Длина может быть неизвестна (chunked): тело больше max-size-bytes идет клиенту без сжатия потоком
+            return BoundedBody.collect(body, compressor.maxSizeBytes(), bytes -> {
+                ContentEncoding encoding = ResponseCompressor.select(accepted,
+                        compressor.encodingsFor(headers.getContentType(), bytes.length));
+                if (encoding == null) {
+                    return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                }
+                return compressor.compressAsync(bytes, encoding, ResponseCompressor.SOURCE_RESPONSE)
+                        .map(compressed -> {
+                            ResponseCompressor.applyEncodingHeaders(headers, encoding, compressed.length);
+                            return compressed;
+                        })
+                        .defaultIfEmpty(bytes)
+                        .flatMap(result -> super.writeWith(Mono.just(bufferFactory().wrap(result))));
+            }, super::writeWith);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.s100p.gateway.compression;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки {@code gateway.compression.*} из application.yml
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.compression")
+public class CompressionProperties {
+
+    private boolean enabled = true;
+    // Порог по умолчанию для правил без своего min-size-bytes: выигрыш на меньших телах меньше накладных расходов
+    private int minSizeBytes = 1024;
+    // Ответы больше этого размера (или chunked, превысившие его) идут клиенту без сжатия потоком,
+    // чтобы не собирать тело целиком в памяти
+    private int maxSizeBytes = 1024 * 1024;
+    // Кодировки, которые gateway предлагает клиентам (br, gzip)
+    private List<String> encodings = new ArrayList<>(List.of("br", "gzip"));
+    // Уровень gzip (1 — быстрее, 9 — сильнее)
+    private int level = 5;
+    // Качество brotli при сжатии на лету (0..11): 4-5 по CPU сравнимо с gzip 5-6 при меньшем размере
+    private int brotliQuality = 4;
+    // Качество brotli для записей EdgeCache: сжатие однократное, можно сильнее
+    private int brotliCacheQuality = 9;
+    // Какие типы сжимать, с каким порогом и какими кодировками (применяется первое совпавшее правило)
+    private List<Rule> rules = new ArrayList<>(List.of(
+            rule("application/json"), rule("application/problem+json"), rule("text/html"), rule("text/plain"),
+            rule("text/css"), rule("application/javascript"), rule("image/svg+xml")));
+
+    @Data
+    public static class Rule {
+        // Тип или шаблон (text/*), сравнение по MediaType.isCompatibleWith
+        private String mimeType;
+        // Не задан — общий min-size-bytes
+        private Integer minSizeBytes;
+        // Не заданы — все кодировки из encodings
+        private List<String> encodings = new ArrayList<>();
+    }
+
+    private static Rule rule(String mimeType) {
+        Rule rule = new Rule();
+        rule.setMimeType(mimeType);
+        return rule;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.s100p.gateway.compression;
+
+import java.util.Locale;
+
+/**
+ * Поддерживаемые кодировки сжатия ответов. Порядок объявления — предпочтение gateway, когда клиент
+ * принимает несколько: brotli при сравнимом времени сжатия дает тело меньше gzip.
+ */
+public enum ContentEncoding {
+
+    BROTLI("br"),
+    GZIP("gzip");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Значение для Content-Encoding / Accept-Encoding
+     */
+    public String token() {
+        return token;
+    }
+
+    /**
+     * Кодировка по значению из Accept-Encoding или настроек (null — не поддерживается)
+     */
+    public static ContentEncoding fromToken(String value) {
+        String token = value.trim().toLowerCase(Locale.ROOT);
+        if ("x-gzip".equals(token)) {
+            return GZIP;
+        }
+        for (ContentEncoding encoding : values()) {
+            if (encoding.token.equals(token)) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+}
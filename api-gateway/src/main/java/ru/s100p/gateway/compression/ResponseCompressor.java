@@ -0,0 +1,291 @@
+package ru.s100p.gateway.compression;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Сжатие тел ответов (brotli, gzip) и правила, когда и чем его применять.
+ *
+ * <p>Кодировка выбирается из принятых клиентом ({@code Accept-Encoding}) в порядке предпочтения
+ * {@link ContentEncoding} среди включенных ({@code gateway.compression.encodings}) и разрешенных правилом
+ * типа содержимого ({@code gateway.compression.rules}); у каждого правила свой порог размера. Brotli сжимает
+ * нативная библиотека brotli4j; если она недоступна на платформе, brotli отключается и остается gzip.</p>
+ *
+ * <p>Deflater переиспользуется в пределах потока (создание экземпляра выделяет нативную память zlib),
+ * заголовок и трейлер gzip (RFC 1952) пишутся вручную. Метрики: {@code gateway.compression.ratio}
+ * (размер после / до) и {@code gateway.compression.time} с тегами {@code encoding} и {@code source}:
+ * {@code response} — сжатие на лету, {@code cache} — однократное сжатие записи кеша.</p>
+ *
+ * <p>Сжатие тела до {@code max-size-bytes} занимает миллисекунды CPU, поэтому из реактивного кода оно
+ * вызывается через {@link #compressAsync}, вне event loop Netty.</p>
+ */
+@Slf4j
+@Component
+public class ResponseCompressor {
+
+    public static final String SOURCE_RESPONSE = "response";
+    public static final String SOURCE_CACHE = "cache";
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final CompressionProperties properties;
+    private final Set<ContentEncoding> encodings;
+    private final List<TypeRule> rules;
+    private final ThreadLocal<Deflater> deflaters;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Правило из настроек с разобранным типом и итоговым набором кодировок
+     */
+    private record TypeRule(MediaType type, int minSizeBytes, Set<ContentEncoding> encodings) {
+    }
+
+    public ResponseCompressor(CompressionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        EnumSet<ContentEncoding> configured = parse(properties.getEncodings());
+        if (configured.contains(ContentEncoding.BROTLI) && !brotliAvailable()) {
+            configured.remove(ContentEncoding.BROTLI);
+        }
+        this.encodings = Collections.unmodifiableSet(configured);
+        this.rules = properties.getRules().stream()
+                .map(rule -> {
+                    EnumSet<ContentEncoding> allowed = rule.getEncodings().isEmpty()
+                            ? EnumSet.copyOf(configured)
+                            : parse(rule.getEncodings());
+                    allowed.retainAll(configured);
+                    return new TypeRule(MediaType.parseMediaType(rule.getMimeType()),
+                            rule.getMinSizeBytes() != null ? rule.getMinSizeBytes() : properties.getMinSizeBytes(),
+                            Collections.unmodifiableSet(allowed));
+                })
+                .toList();
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(properties.getLevel(), true));
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled() && !encodings.isEmpty();
+    }
+
+    /**
+     * Предел размера тела, собираемого в памяти для сжатия на лету
+     */
+    public int maxSizeBytes() {
+        return properties.getMaxSizeBytes();
+    }
+
+    /**
+     * Кодировки, которыми стоит сжимать тело такого типа и размера (размер -1 — еще неизвестен).
+     * Пусто — тело не сжимается: тип не подходит ни под одно правило или размер вне порогов.
+     */
+    public Set<ContentEncoding> encodingsFor(MediaType contentType, long length) {
+        if (!properties.isEnabled() || contentType == null || length > properties.getMaxSizeBytes()) {
+            return Set.of();
+        }
+        for (TypeRule rule : rules) {
+            if (rule.type().isCompatibleWith(contentType)) {
+                return length >= 0 && length < rule.minSizeBytes() ? Set.of() : rule.encodings();
+            }
+        }
+        return Set.of();
+    }
+
+    /**
+     * Кодировка ответа: первая по предпочтению gateway среди принятых клиентом и доступных для тела
+     *
+     * @return кодировка или null — отдавать без сжатия
+     */
+    public static ContentEncoding select(Set<ContentEncoding> accepted, Collection<ContentEncoding> available) {
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            if (accepted.contains(encoding) && available.contains(encoding)) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Кодировки, которые принимает клиент (с учетом q=0 и "*")
+     */
+    public static Set<ContentEncoding> acceptedEncodings(HttpHeaders requestHeaders) {
+        EnumSet<ContentEncoding> accepted = EnumSet.noneOf(ContentEncoding.class);
+        EnumSet<ContentEncoding> rejected = EnumSet.noneOf(ContentEncoding.class);
+        boolean wildcard = false;
+        for (String value : requestHeaders.getValuesAsList(HttpHeaders.ACCEPT_ENCODING)) {
+            String[] parts = value.split(";");
+            boolean zeroQuality = parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            if ("*".equals(parts[0].trim())) {
+                wildcard = !zeroQuality;
+                continue;
+            }
+            ContentEncoding encoding = ContentEncoding.fromToken(parts[0]);
+            if (encoding != null) {
+                (zeroQuality ? rejected : accepted).add(encoding);
+            }
+        }
+        if (wildcard) {
+            EnumSet<ContentEncoding> rest = EnumSet.allOf(ContentEncoding.class);
+            rest.removeAll(rejected);
+            accepted.addAll(rest);
+        }
+        return accepted;
+    }
+
+    /**
+     * Сжатие тела
+     *
+     * @param source {@link #SOURCE_RESPONSE} или {@link #SOURCE_CACHE}: тег метрик и качество brotli
+     * @return сжатое тело или null, если сжатие не уменьшило размер
+     */
+    public byte[] compress(byte[] input, ContentEncoding encoding, String source) {
+        long start = System.nanoTime();
+        byte[] compressed = switch (encoding) {
+            case GZIP -> gzip(input);
+            case BROTLI -> brotli(input, SOURCE_CACHE.equals(source)
+                    ? properties.getBrotliCacheQuality()
+                    : properties.getBrotliQuality());
+        };
+        if (compressed == null) {
+            return null;
+        }
+
+        Timer.builder("gateway.compression.time")
+                .description("CPU time spent compressing response bodies")
+                .tag("encoding", encoding.token())
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("gateway.compression.ratio")
+                .description("Compressed size divided by original size")
+                .tag("encoding", encoding.token())
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(input.length == 0 ? 1.0 : (double) compressed.length / input.length);
+
+        return compressed.length < input.length ? compressed : null;
+    }
+
+    /**
+     * {@link #compress} на {@code Schedulers.boundedElastic()}, чтобы не занимать поток event loop
+     *
+     * @return сжатое тело; пусто, если сжатие не уменьшило размер
+     */
+    public Mono<byte[]> compressAsync(byte[] input, ContentEncoding encoding, String source) {
+        return Mono.fromCallable(() -> compress(input, encoding, source))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Сжатие тела всеми указанными кодировками (для записи кеша)
+     *
+     * @return сжатые тела по кодировкам; кодировки без выигрыша в размере не попадают
+     */
+    public Map<ContentEncoding, byte[]> compressAll(byte[] input, Set<ContentEncoding> encodings, String source) {
+        EnumMap<ContentEncoding, byte[]> bodies = new EnumMap<>(ContentEncoding.class);
+        for (ContentEncoding encoding : encodings) {
+            byte[] compressed = compress(input, encoding, source);
+            if (compressed != null) {
+                bodies.put(encoding, compressed);
+            }
+        }
+        return Collections.unmodifiableMap(bodies);
+    }
+
+    /**
+     * Заголовки для сжатого тела: Content-Encoding, Vary и слабый ETag (сильный ETag привязан к конкретному представлению)
+     */
+    public static void applyEncodingHeaders(HttpHeaders headers, ContentEncoding encoding, int compressedLength) {
+        headers.set(HttpHeaders.CONTENT_ENCODING, encoding.token());
+        headers.setContentLength(compressedLength);
+        addVaryAcceptEncoding(headers);
+        String etag = headers.getETag();
+        if (etag != null && !etag.startsWith("W/")) {
+            headers.setETag("W/" + etag);
+        }
+    }
+
+    public static void addVaryAcceptEncoding(HttpHeaders headers) {
+        if (headers.getVary().stream().noneMatch(HttpHeaders.ACCEPT_ENCODING::equalsIgnoreCase)) {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+    }
+
+    private byte[] gzip(byte[] input) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 4 + 64);
+        out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            int written = deflater.deflate(chunk);
+            out.write(chunk, 0, written);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(input);
+        writeIntLittleEndian(out, (int) crc.getValue());
+        writeIntLittleEndian(out, input.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] brotli(byte[] input, int quality) {
+        try {
+            return Encoder.compress(input, new Encoder.Parameters().setQuality(quality));
+        } catch (IOException ex) {
+            log.debug("Сжатие brotli не удалось, тело отдается без сжатия: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean brotliAvailable() {
+        try {
+            Brotli4jLoader.ensureAvailability();
+            return true;
+        } catch (RuntimeException | LinkageError ex) {
+            log.warn("Brotli недоступен на этой платформе, ответы сжимаются только gzip: {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    private static EnumSet<ContentEncoding> parse(List<String> tokens) {
+        EnumSet<ContentEncoding> parsed = EnumSet.noneOf(ContentEncoding.class);
+        for (String token : tokens) {
+            ContentEncoding encoding = ContentEncoding.fromToken(token);
+            if (encoding == null) {
+                throw new IllegalStateException("Неизвестная кодировка сжатия: " + token);
+            }
+            parsed.add(encoding);
+        }
+        return parsed;
+    }
+
+    private static void writeIntLittleEndian(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.s100p.gateway.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Адаптивное ограничение числа одновременных запросов к upstream каждого маршрута.
+ *
+ * <p>Для каждого маршрута свой {@link GradientConcurrencyLimit}. Когда лимит исчерпан, запрос сразу
+ * получает 503 с {@code Retry-After}, а не встает в очередь к перегруженному сервису: так деградация одного
+ * сервиса (например, payment-service при медленном провайдере) не съедает соединения и не портит задержки
+ * остальных маршрутов.</p>
+ *
+ * <p>Время ответа замеряется, а разрешение освобождается в момент фиксации ответа клиенту
+ * ({@code beforeCommit}), то есть когда ответ upstream уже получен. Если ждать завершения всей цепочки,
+ * в замер попадает передача тела клиенту: медленные клиенты завышали бы задержку, снижали лимит
+ * и держали разрешения, не нагружая upstream.</p>
+ *
+ * <p>Фильтр выполняется после аутентификации, rate limiter, кеша и объединения запросов —
+ * считаются только реальные обращения к upstream.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class ConcurrencyLimitGlobalFilter implements GlobalFilter, Ordered {
+
+    // После RateLimitGlobalFilter (1000), до RouteToRequestUrlFilter (10000)
+    private static final int ORDER = 1100;
+
+    private final ConcurrencyLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, GradientConcurrencyLimit> limits = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null) {
+            return chain.filter(exchange);
+        }
+
+        GradientConcurrencyLimit limit = limits.computeIfAbsent(route.getId(), this::createLimit);
+        if (!limit.tryAcquire()) {
+            Counter.builder("gateway.concurrency.rejected")
+                    .description("Requests rejected by the adaptive concurrency limit")
+                    .tag("route", route.getId())
+                    .register(meterRegistry)
+                    .increment();
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+            return exchange.getResponse().setComplete();
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        exchange.getResponse().beforeCommit(() -> {
+            if (released.compareAndSet(false, true)) {
+                limit.release(System.nanoTime() - start, isDropped(exchange.getResponse().getStatusCode()));
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+                // До обработчика ошибок: он фиксирует ответ со своим статусом
+                .doOnError(ex -> {
+                    if (released.compareAndSet(false, true)) {
+                        limit.release(System.nanoTime() - start, true);
+                    }
+                })
+                .doFinally(signal -> {
+                    if (!released.compareAndSet(false, true)) {
+                        return;
+                    }
+                    if (signal == SignalType.CANCEL) {
+                        limit.releaseIgnored();
+                    } else {
+                        limit.release(System.nanoTime() - start, isDropped(exchange.getResponse().getStatusCode()));
+                    }
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private static boolean isDropped(HttpStatusCode status) {
+        return status == null
+                || status.value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                || status.value() == HttpStatus.GATEWAY_TIMEOUT.value();
+    }
+
+    private GradientConcurrencyLimit createLimit(String routeId) {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(properties);
+        Gauge.builder("gateway.concurrency.limit", limit, GradientConcurrencyLimit::limit)
+                .description("Current adaptive concurrency limit")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        Gauge.builder("gateway.concurrency.inflight", limit, GradientConcurrencyLimit::inFlight)
+                .description("Requests in flight to the upstream")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        return limit;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.s100p.gateway.concurrency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Настройки {@code gateway.concurrency-limit.*} из application.yml (общие для всех маршрутов,
+ * но каждый маршрут подбирает свой лимит независимо)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 5;
+    private int maxLimit = 500;
+    // Доля нового значения лимита при сглаживании (0..1)
+    private double smoothing = 0.2;
+    // Во сколько раз текущая задержка может превышать долговременную, прежде чем лимит начнет снижаться
+    private double rttTolerance = 1.5;
+    // Окно (в ответах) экспоненциального среднего долговременной задержки
+    private int longWindow = 600;
+    // Множитель лимита при ошибке upstream (таймаут, отказ соединения, 503/504)
+    private double backoffRatio = 0.9;
+}
@@ -0,0 +1,93 @@
+package ru.s100p.gateway.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Адаптивный лимит одновременных запросов к одному upstream (по мотивам Gradient2 из Netflix concurrency-limits).
+ *
+ * <p>Лимит подстраивается по отношению долговременной задержки (экспоненциальное среднее за
+ * {@code longWindow} ответов) к текущей: пока задержка не растет, лимит увеличивается на sqrt(limit),
+ * а когда сервис начинает копить очередь и задержка растет, лимит уменьшается пропорционально.
+ * Ошибки upstream уменьшают лимит мультипликативно. Если занято меньше половины лимита, он не растет:
+ * по такой нагрузке нельзя судить о пропускной способности сервиса.</p>
+ *
+ * <p>Захват разрешения — CAS без блокировок; пересчет лимита синхронизирован, но выполняется только
+ * по завершении запроса и занимает несколько арифметических операций.</p>
+ */
+final class GradientConcurrencyLimit {
+
+    private final ConcurrencyLimitProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double estimatedLimit;
+    private double longRttNanos;
+
+    GradientConcurrencyLimit(ConcurrencyLimitProperties properties) {
+        this.properties = properties;
+        this.estimatedLimit = properties.getInitialLimit();
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) estimatedLimit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Освобождение разрешения с учетом результата запроса
+     *
+     * @param rttNanos время ответа upstream
+     * @param dropped  upstream не справился (ошибка, таймаут, 503/504)
+     */
+    void release(long rttNanos, boolean dropped) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        synchronized (this) {
+            estimatedLimit = clamp(dropped ? estimatedLimit * properties.getBackoffRatio() : nextLimit(rttNanos, inFlightBefore));
+        }
+    }
+
+    /**
+     * Освобождение без обновления лимита (запрос отменен клиентом)
+     */
+    void releaseIgnored() {
+        inFlight.decrementAndGet();
+    }
+
+    int limit() {
+        return (int) estimatedLimit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private double nextLimit(long rttNanos, int inFlightBefore) {
+        double shortRtt = rttNanos;
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+        } else {
+            longRttNanos += (shortRtt - longRttNanos) / properties.getLongWindow();
+        }
+        // После длительной перегрузки долговременное среднее завышено: постепенно возвращаем его к текущему
+        if (longRttNanos / shortRtt > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        if (inFlightBefore < estimatedLimit / 2) {
+            return estimatedLimit;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRttNanos / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        return estimatedLimit * (1 - properties.getSmoothing()) + newLimit * properties.getSmoothing();
+    }
+
+    private double clamp(double limit) {
+        return Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), limit));
+    }
+}
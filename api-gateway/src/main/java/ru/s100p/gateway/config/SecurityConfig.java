@@ -0,0 +1,37 @@
+package ru.s100p.gateway.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import ru.s100p.shared.security.IdentityHeaderCodec;
+
+import java.time.Duration;
+
+/**
+ * Аутентификация на gateway выполняется фильтрами маршрутов ({@code JwtAuthentication}, {@code Authentication}),
+ * поэтому стандартная цепочка Spring Security (basic auth, форма входа, CSRF) отключена.
+ */
+@Configuration
+@EnableWebFluxSecurity
+public class SecurityConfig {
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .authorizeExchange(exchanges -> exchanges.anyExchange().permitAll())
+                .build();
+    }
+
+    // Подпись заголовка X-User-Identity для сервисов за gateway (секрет общий с сервисами)
+    @Bean
+    public IdentityHeaderCodec identityHeaderCodec(@Value("${security.identity.secret}") String secret,
+                                                   @Value("${security.identity.max-age:30s}") Duration maxAge) {
+        return new IdentityHeaderCodec(secret, maxAge);
+    }
+}
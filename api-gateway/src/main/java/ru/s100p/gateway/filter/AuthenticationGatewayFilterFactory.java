@@ -0,0 +1,43 @@
+package ru.s100p.gateway.filter;
+
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import ru.s100p.gateway.security.AuthenticatedUser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фильтр маршрута {@code Authentication}: проверка ролей пользователя, аутентифицированного
+ * предшествующим фильтром {@code JwtAuthentication}. Достаточно одной из {@code requiredRoles}.
+ */
+@Component
+public class AuthenticationGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AuthenticationGatewayFilterFactory.Config> {
+
+    public AuthenticationGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            AuthenticatedUser user = exchange.getAttribute(AuthenticatedUser.ATTRIBUTE);
+            if (user == null) {
+                return JwtAuthenticationGatewayFilterFactory.reject(exchange, HttpStatus.UNAUTHORIZED);
+            }
+            if (!user.hasAnyAuthority(config.getRequiredRoles())) {
+                return JwtAuthenticationGatewayFilterFactory.reject(exchange, HttpStatus.FORBIDDEN);
+            }
+            return chain.filter(exchange);
+        };
+    }
+
+    @Data
+    public static class Config {
+        private List<String> requiredRoles = new ArrayList<>();
+    }
+}
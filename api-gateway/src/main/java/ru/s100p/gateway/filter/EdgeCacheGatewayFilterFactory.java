@@ -0,0 +1,207 @@
+package ru.s100p.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import ru.s100p.gateway.cache.CachedResponse;
+import ru.s100p.gateway.cache.EdgeResponseCache;
+import ru.s100p.gateway.coalescing.RequestCoalescingGlobalFilter;
+import ru.s100p.gateway.compression.ContentEncoding;
+import ru.s100p.gateway.compression.ResponseCompressor;
+import ru.s100p.gateway.support.BoundedBody;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static ru.s100p.gateway.cache.EdgeResponseCache.X_CACHE;
+import static ru.s100p.shared.constants.ApiConstants.AUTHORIZATION_HEADER;
+
+/**
+ * Фильтр маршрута {@code EdgeCache}: кеширование анонимных GET ответов в {@link EdgeResponseCache}.
+ *
+ * <p>Ключ — исходный путь и query запроса. Свежая запись отдается без обращения к upstream, устаревшая
+ * (в пределах stale-while-revalidate) — тоже, но с фоновой перепроверкой. Условные запросы
+ * (If-None-Match) получают 304 как из кеша, так и при промахе: в upstream уходит безусловный запрос без
+ * Accept-Encoding, чтобы в кеше было полное несжатое тело. Запросы с Authorization кеш не затрагивают.</p>
+ *
+ * <p>Фильтр выполняется до {@link NettyWriteResponseFilter}, иначе ответ upstream не пройдет через декоратор,
+ * но после {@link RequestCoalescingGlobalFilter}: одновременные промахи объединяются в один запрос в upstream,
+ * а ожидающие получают готовое (при необходимости сжатое) тело записи кеша.</p>
+ */
+@Component
+public class EdgeCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+
+    private final EdgeResponseCache cache;
+    private final MeterRegistry meterRegistry;
+
+    public EdgeCacheGatewayFilterFactory(EdgeResponseCache cache, MeterRegistry meterRegistry) {
+        this.cache = cache;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Object config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET || request.getHeaders().containsKey(AUTHORIZATION_HEADER)) {
+                return chain.filter(exchange);
+            }
+
+            String key = request.getURI().getRawPath()
+                    + (request.getURI().getRawQuery() != null ? "?" + request.getURI().getRawQuery() : "");
+            List<String> ifNoneMatch = request.getHeaders().getIfNoneMatch();
+            Set<ContentEncoding> accepted = ResponseCompressor.acceptedEncodings(request.getHeaders());
+            long now = System.currentTimeMillis();
+
+            CachedResponse entry = cache.get(key);
+            if (entry != null && entry.isFresh(now)) {
+                count("hit");
+                return writeCached(exchange, entry, "HIT", ifNoneMatch, accepted, now);
+            }
+            if (entry != null && entry.isServableStale(now)) {
+                count("stale");
+                cache.revalidateInBackground(key, entry);
+                return writeCached(exchange, entry, "STALE", ifNoneMatch, accepted, now);
+            }
+
+            count("miss");
+            long generation = cache.generation();
+            ServerHttpRequest upstreamRequest = request.mutate()
+                    .headers(headers -> {
+                        headers.remove(HttpHeaders.IF_NONE_MATCH);
+                        headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                        headers.remove(HttpHeaders.ACCEPT_ENCODING);
+                    })
+                    .build();
+            ServerHttpResponse cachingResponse = new CachingResponse(exchange, key, generation, ifNoneMatch, accepted);
+            return chain.filter(exchange.mutate().request(upstreamRequest).response(cachingResponse).build());
+        }, ORDER);
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse entry, String cacheState,
+                                   List<String> ifNoneMatch, Set<ContentEncoding> accepted, long now) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(entry.headers());
+        headers.set(HttpHeaders.AGE, Long.toString(entry.ageSeconds(now)));
+        headers.set(X_CACHE, cacheState);
+
+        if (matches(ifNoneMatch, entry.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.valueOf(entry.status()));
+        return writeBody(response, entry, accepted);
+    }
+
+    // Заранее сжатое тело в предпочтительной кодировке из принятых клиентом отдается как есть, без повторного сжатия
+    private static Mono<Void> writeBody(ServerHttpResponse response, CachedResponse entry,
+                                        Set<ContentEncoding> accepted) {
+        byte[] body = entry.body();
+        ContentEncoding encoding = ResponseCompressor.select(accepted, entry.encodedBodies().keySet());
+        if (encoding != null) {
+            body = entry.encodedBodies().get(encoding);
+            ResponseCompressor.applyEncodingHeaders(response.getHeaders(), encoding, body.length);
+        } else {
+            response.getHeaders().setContentLength(body.length);
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    private void count(String result) {
+        Counter.builder("gateway.edge-cache.requests")
+                .description("Edge response cache lookups")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Слабое сравнение ETag (RFC 9110, 13.1.2): префикс W/ не учитывается
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch.isEmpty() || etag == null) {
+            return false;
+        }
+        String opaque = stripWeak(etag);
+        return ifNoneMatch.stream().anyMatch(tag -> "*".equals(tag) || stripWeak(tag).equals(opaque));
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Собирает тело ответа upstream, сохраняет его в кеш и отдает клиенту (или 304 по If-None-Match)
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String key;
+        private final long generation;
+        private final List<String> ifNoneMatch;
+        private final Set<ContentEncoding> accepted;
+
+        CachingResponse(ServerWebExchange exchange, String key, long generation, List<String> ifNoneMatch,
+                        Set<ContentEncoding> accepted) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.generation = generation;
+            this.ifNoneMatch = ifNoneMatch;
+            this.accepted = accepted;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            long contentLength = getHeaders().getContentLength();
+            if (status == null || status.value() != HttpStatus.OK.value() || contentLength > cache.maxEntryBytes()) {
+                return super.writeWith(body);
+            }
+
+            // Длина может быть неизвестна (chunked): тело больше max-entry-bytes не кешируется и идет клиенту потоком
+            return BoundedBody.collect(body, cache.maxEntryBytes(), bytes -> {
+                URI upstreamUri = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+                return cache.store(key, generation, HttpStatus.OK, getHeaders(), bytes, upstreamUri)
+                        .map(this::writeStored)
+                        .defaultIfEmpty(Mono.defer(() -> {
+                            getHeaders().set(X_CACHE, "MISS");
+                            return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                        }))
+                        .flatMap(write -> write);
+            }, super::writeWith);
+        }
+
+        private Mono<Void> writeStored(CachedResponse entry) {
+            getHeaders().set(X_CACHE, "MISS");
+            getHeaders().setETag(entry.etag());
+            if (matches(ifNoneMatch, entry.etag())) {
+                setStatusCode(HttpStatus.NOT_MODIFIED);
+                getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                return setComplete();
+            }
+            if (!entry.encodedBodies().isEmpty()) {
+                ResponseCompressor.addVaryAcceptEncoding(getHeaders());
+            }
+            return writeBody(getDelegate(), entry, accepted);
+        }
+    }
+}
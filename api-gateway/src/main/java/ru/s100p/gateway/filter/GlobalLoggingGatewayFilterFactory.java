@@ -0,0 +1,119 @@
+package ru.s100p.gateway.filter;
+
+import lombok.Data;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import ru.s100p.gateway.logging.AccessLog;
+import ru.s100p.gateway.security.AuthenticatedUser;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Фильтр {@code GlobalLogging} (подключается ко всем маршрутам через {@code default-filters}): структурированный access лог.
+ *
+ * <p>Успешные запросы логируются с долей из {@code gateway.access-log.sample-rates} (решение принимается в начале
+ * запроса, чтобы для остальных не создавать никаких объектов), ошибки (5xx, исключения) и медленные запросы —
+ * всегда. {@code preLogger} добавляет запись о начале запроса, {@code postLogger} — запись с результатом.
+ * Запись только кладется в буфер {@link AccessLog}, форматирование и вывод происходят вне event loop.</p>
+ */
+@Component
+public class GlobalLoggingGatewayFilterFactory extends AbstractGatewayFilterFactory<GlobalLoggingGatewayFilterFactory.Config> {
+
+    // Раньше всех остальных фильтров, чтобы видеть итоговый статус и полное время обработки
+    private static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 500;
+
+    private final AccessLog accessLog;
+
+    public GlobalLoggingGatewayFilterFactory(AccessLog accessLog) {
+        super(Config.class);
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            long startNanos = System.nanoTime();
+            long startMs = System.currentTimeMillis();
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : null;
+            boolean sampled = ThreadLocalRandom.current().nextDouble() < accessLog.sampleRate(routeId);
+            ServerHttpRequest request = exchange.getRequest();
+
+            if (sampled && config.isPreLogger()) {
+                accessLog.request(startMs, config.getBaseMessage(), routeId, request.getMethod().name(),
+                        request.getPath().value());
+            }
+            if (!config.isPostLogger()) {
+                return chain.filter(exchange);
+            }
+
+            // Подсчет байт тела — только для попавших в выборку запросов
+            CountingResponse countingResponse = sampled ? new CountingResponse(exchange) : null;
+            ServerWebExchange filtered = sampled ? exchange.mutate().response(countingResponse).build() : exchange;
+            Throwable[] failure = new Throwable[1];
+            return chain.filter(filtered)
+                    .doOnError(ex -> failure[0] = ex)
+                    .doFinally(signal -> {
+                        long latencyMs = (System.nanoTime() - startNanos) / 1_000_000;
+                        HttpStatusCode status = exchange.getResponse().getStatusCode();
+                        boolean failed = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+                        if (!sampled && !failed && !accessLog.isSlow(latencyMs)) {
+                            return;
+                        }
+                        long bytes = countingResponse != null
+                                ? countingResponse.bytes
+                                : exchange.getResponse().getHeaders().getContentLength();
+                        AuthenticatedUser user = exchange.getAttribute(AuthenticatedUser.ATTRIBUTE);
+                        accessLog.response(startMs, config.getBaseMessage(), routeId, request.getMethod().name(),
+                                request.getPath().value(), status != null ? status.value() : 0, latencyMs, bytes,
+                                user != null ? user.userId() : null,
+                                failure[0] != null ? failure[0].getClass().getSimpleName() : null);
+                    });
+        }, ORDER);
+    }
+
+    /**
+     * Считает байты тела ответа, не копируя буферы
+     */
+    private static final class CountingResponse extends ServerHttpResponseDecorator {
+
+        private volatile long bytes;
+
+        CountingResponse(ServerWebExchange exchange) {
+            super(exchange.getResponse());
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return super.writeWith(Flux.from(body).doOnNext(buffer -> bytes += buffer.readableByteCount()));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(Flux.from(body)
+                    .map(chunk -> Flux.from(chunk).doOnNext(buffer -> bytes += buffer.readableByteCount())));
+        }
+    }
+
+    @Data
+    public static class Config {
+        private String baseMessage;
+        private boolean preLogger;
+        private boolean postLogger = true;
+    }
+}
@@ -0,0 +1,104 @@
+package ru.s100p.gateway.filter;
+
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import ru.s100p.gateway.security.AccessTokenVerifier;
+import ru.s100p.gateway.security.AuthenticatedUser;
+import ru.s100p.gateway.security.StripIdentityHeaderGlobalFilter;
+import ru.s100p.shared.security.IdentityAssertion;
+import ru.s100p.shared.security.IdentityHeaderCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static ru.s100p.shared.constants.ApiConstants.AUTHORIZATION_HEADER;
+import static ru.s100p.shared.constants.ApiConstants.BEARER_PREFIX;
+import static ru.s100p.shared.constants.ApiConstants.IDENTITY_HEADER;
+
+/**
+ * Фильтр маршрута {@code JwtAuthentication}: проверяет Bearer токен и передает данные пользователя
+ * сервису в подписанном заголовке {@code X-User-Identity}, чтобы сервисы не проверяли JWT повторно.
+ *
+ * <p>Без токена или с недействительным токеном запрос отклоняется с 401, при нехватке ролей
+ * (необязательный аргумент {@code requiredRoles}) — с 403. Заголовок {@code X-User-Identity} от клиента
+ * удаляется на всех маршрутах ({@link StripIdentityHeaderGlobalFilter}).</p>
+ */
+@Component
+public class JwtAuthenticationGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<JwtAuthenticationGatewayFilterFactory.Config> {
+
+    private final AccessTokenVerifier tokenVerifier;
+    private final IdentityHeaderCodec identityHeaderCodec;
+
+    public JwtAuthenticationGatewayFilterFactory(AccessTokenVerifier tokenVerifier,
+                                                 IdentityHeaderCodec identityHeaderCodec) {
+        super(Config.class);
+        this.tokenVerifier = tokenVerifier;
+        this.identityHeaderCodec = identityHeaderCodec;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            String token = extractToken(exchange.getRequest());
+            if (token == null) {
+                return reject(exchange, HttpStatus.UNAUTHORIZED);
+            }
+
+            return tokenVerifier.verify(token)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(verified -> {
+                        if (verified.isEmpty()) {
+                            return reject(exchange, HttpStatus.UNAUTHORIZED);
+                        }
+                        AuthenticatedUser user = verified.get();
+                        if (!user.hasAnyAuthority(config.getRequiredRoles())) {
+                            return reject(exchange, HttpStatus.FORBIDDEN);
+                        }
+
+                        exchange.getAttributes().put(AuthenticatedUser.ATTRIBUTE, user);
+                        IdentityAssertion identity = new IdentityAssertion(user.userId(), user.username(),
+                                user.authorities(), user.securityVersion(), user.expiresAt().getEpochSecond(),
+                                System.currentTimeMillis() / 1000);
+                        ServerHttpRequest request = exchange.getRequest().mutate()
+                                .header(IDENTITY_HEADER, identityHeaderCodec.encode(identity))
+                                .build();
+                        return chain.filter(exchange.mutate().request(request).build());
+                    });
+        };
+    }
+
+    static Mono<Void> reject(ServerWebExchange exchange, HttpStatus status) {
+        exchange.getResponse().setStatusCode(status);
+        if (status == HttpStatus.UNAUTHORIZED) {
+            exchange.getResponse().getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+        }
+        return exchange.getResponse().setComplete();
+    }
+
+    /**
+     * Access токен из заголовка Authorization (null, если заголовка нет или он не Bearer)
+     */
+    public static String extractToken(ServerHttpRequest request) {
+        String header = request.getHeaders().getFirst(AUTHORIZATION_HEADER);
+        if (header != null && header.startsWith(BEARER_PREFIX) && header.length() > BEARER_PREFIX.length()) {
+            return header.substring(BEARER_PREFIX.length());
+        }
+        return null;
+    }
+
+    @Data
+    public static class Config {
+        // Роли, хотя бы одна из которых нужна для доступа (пусто — достаточно действительного токена)
+        private List<String> requiredRoles = new ArrayList<>();
+    }
+}
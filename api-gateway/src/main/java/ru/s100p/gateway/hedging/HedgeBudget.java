@@ -0,0 +1,43 @@
+package ru.s100p.gateway.hedging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Бюджет дублирующих запросов маршрута.
+ *
+ * <p>Каждый запрос маршрута пополняет бюджет на {@code budgetPercent} сотых дублирующего запроса,
+ * каждый дублирующий запрос списывает одну единицу. Запас ограничен {@code budgetBurst}, поэтому при
+ * деградации всего сервиса (когда медленными становятся все ответы) дополнительная нагрузка
+ * не превышает заданного процента, а не удваивает поток запросов.</p>
+ */
+final class HedgeBudget {
+
+    // Единица бюджета — один дублирующий запрос в сотых долях процента
+    private static final long HEDGE_COST = 10_000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    HedgeBudget(double budgetPercent, int budgetBurst) {
+        this.deposit = Math.round(budgetPercent * 100);
+        this.capacity = budgetBurst * HEDGE_COST;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    void onRequest() {
+        balance.getAndUpdate(current -> Math.min(capacity, current + deposit));
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            long current = balance.get();
+            if (current < HEDGE_COST) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - HEDGE_COST)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package ru.s100p.gateway.hedging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.netty.Connection;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientResponse;
+import ru.s100p.gateway.loadbalancer.LoadBalancer;
+import ru.s100p.gateway.loadbalancer.LoadBalancerGlobalFilter;
+import ru.s100p.gateway.loadbalancer.ServiceInstance;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setAlreadyRouted;
+
+/**
+ * Дублирующие (hedged) GET запросы для маршрутов {@code lb://} из {@code gateway.hedging.routes}.
+ *
+ * <p>Запрос отправляется в upstream как обычно; если ответ не пришел за процентиль задержки маршрута
+ * ({@code percentile}, по последним {@code window-size} ответам), тот же запрос отправляется на другой
+ * экземпляр сервиса, выбранный {@link LoadBalancer}. Клиент получает первый пришедший ответ, второй запрос отменяется. Так пауза GC или
+ * медленный запрос к БД на одном экземпляре не превращается в задержку клиента. Дополнительная нагрузка
+ * ограничена {@link HedgeBudget}; пока окно задержек не набрано, дублирующие запросы не отправляются.</p>
+ *
+ * <p>Фильтр выполняется после всех фильтров маршрута и вместо {@code NettyRoutingFilter}: итоговый URI
+ * upstream уже вычислен, ответ пишется через декораторы кеша, объединения запросов и сжатия. Запросы идут
+ * через тот же {@link HttpClient}, что и у {@code NettyRoutingFilter} (пул соединений, таймауты, TLS из
+ * {@code spring.cloud.gateway.httpclient}). Гонка решается по заголовкам ответа, тело победителя передается
+ * клиенту потоком, без накопления в памяти; соединение проигравшего закрывается.</p>
+ */
+@Slf4j
+@Component
+public class HedgedRequestGlobalFilter implements GlobalFilter, Ordered {
+
+    // После RouteToRequestUrlFilter (10000), до NettyRoutingFilter (LOWEST_PRECEDENCE)
+    private static final int ORDER = Ordered.LOWEST_PRECEDENCE - 10;
+
+    private static final Set<String> EXCLUDED_RESPONSE_HEADERS = Set.of(
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION, "Keep-Alive");
+
+    private final HedgingProperties properties;
+    private final LoadBalancer loadBalancer;
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFilters;
+    private final MeterRegistry meterRegistry;
+    private final HttpClient httpClient;
+    private final ConcurrentHashMap<String, RouteHedging> hedging = new ConcurrentHashMap<>();
+
+    /**
+     * Состояние маршрута: окно задержек и бюджет дублирующих запросов
+     */
+    private record RouteHedging(LatencyWindow latencies, HedgeBudget budget) {
+    }
+
+    /**
+     * Заголовки ответа upstream; тело еще не прочитано и читается из connection
+     */
+    private record UpstreamResponse(HttpClientResponse response, Connection connection, URI uri, boolean hedged) {
+    }
+
+    public HedgedRequestGlobalFilter(HedgingProperties properties,
+                                     LoadBalancer loadBalancer,
+                                     ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                     MeterRegistry meterRegistry,
+                                     HttpClient httpClient) {
+        this.properties = properties;
+        this.loadBalancer = loadBalancer;
+        this.headersFilters = headersFilters;
+        this.meterRegistry = meterRegistry;
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        URI primaryUri = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        if (!properties.isEnabled() || route == null || primaryUri == null || isAlreadyRouted(exchange)
+                || exchange.getRequest().getMethod() != HttpMethod.GET
+                || !properties.getRoutes().contains(route.getId())
+                || !LoadBalancerGlobalFilter.SCHEME.equals(route.getUri().getScheme())
+                || !("http".equals(primaryUri.getScheme()) || "https".equals(primaryUri.getScheme()))) {
+            return chain.filter(exchange);
+        }
+        String serviceId = route.getUri().getHost();
+        if (!loadBalancer.hasAlternative(serviceId)) {
+            return chain.filter(exchange);
+        }
+        setAlreadyRouted(exchange);
+
+        RouteHedging state = hedging.computeIfAbsent(route.getId(), id -> new RouteHedging(
+                new LatencyWindow(properties.getWindowSize(), properties.getPercentile()),
+                new HedgeBudget(properties.getBudgetPercent(), properties.getBudgetBurst())));
+        state.budget().onRequest();
+
+        HttpHeaders headers = HttpHeadersFilter.filterRequest(headersFilters.getIfAvailable(), exchange);
+        headers.remove(HttpHeaders.HOST);
+
+        // Задержка измеряется на весь обмен — от отправки основного запроса до ответа победителя. Если мерить
+        // каждый запрос отдельно, медленный основной, отмененный выигравшим дублем, не попадает в окно,
+        // перцентиль смещается вниз и дублирование упирается в бюджет
+        long start = System.nanoTime();
+        AtomicBoolean decided = new AtomicBoolean();
+        // Экземпляр основного запроса освобождает LoadBalancerGlobalFilter по завершении всего обмена, когда
+        // статус ответа может принадлежать уже дублирующему запросу, поэтому итог основного передается явно
+        Mono<UpstreamResponse> primary = send(primaryUri, headers, false, decided)
+                .doOnError(ex -> outcome(exchange, LoadBalancerGlobalFilter.Outcome.FAILED))
+                .doOnCancel(() -> outcome(exchange, LoadBalancerGlobalFilter.Outcome.CANCELLED))
+                .switchIfEmpty(Mono.fromRunnable(
+                        () -> outcome(exchange, LoadBalancerGlobalFilter.Outcome.CANCELLED)));
+        Duration delay = hedgeDelay(state);
+        if (delay == null) {
+            return recordLatency(primary, state, start).flatMap(upstream -> write(exchange, upstream));
+        }
+
+        // Основной запрос мог быстро завершиться ошибкой, а дублирующий — не состояться (бюджет, нет
+        // экземпляра): тогда клиент получает ошибку основного (502/504), а не NoSuchElementException
+        AtomicReference<Throwable> primaryError = new AtomicReference<>();
+        Mono<UpstreamResponse> hedge = Mono.delay(delay)
+                .flatMap(tick -> {
+                    if (!state.budget().tryAcquire()) {
+                        count(route.getId(), "budget-exhausted");
+                        return Mono.empty();
+                    }
+                    ServiceInstance instance = loadBalancer.choose(serviceId, null, primaryUri);
+                    if (instance == null) {
+                        return Mono.empty();
+                    }
+                    count(route.getId(), "sent");
+                    // Экземпляр оценивается по статусу выигравшего ответа; опоздавший или отмененный не оценивается
+                    AtomicReference<HttpStatusCode> answered = new AtomicReference<>();
+                    return send(instance.reconstruct(primaryUri), headers, true, decided)
+                            .doOnNext(upstream -> answered.set(status(upstream)))
+                            .doFinally(signal -> {
+                                if (signal == SignalType.ON_ERROR) {
+                                    loadBalancer.release(instance, true);
+                                } else if (answered.get() != null) {
+                                    loadBalancer.release(instance,
+                                            LoadBalancerGlobalFilter.isUpstreamFailure(answered.get()));
+                                } else {
+                                    loadBalancer.releaseIgnored(instance);
+                                }
+                            });
+                });
+        Mono<UpstreamResponse> race = Mono.firstWithValue(primary.doOnError(primaryError::set), hedge)
+                .onErrorMap(NoSuchElementException.class,
+                        ex -> primaryError.get() != null ? primaryError.get() : ex);
+        return recordLatency(race, state, start)
+                .doOnNext(upstream -> {
+                    if (upstream.hedged()) {
+                        count(route.getId(), "won");
+                    }
+                })
+                .flatMap(upstream -> write(exchange, upstream));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * Задержка перед дублирующим запросом (null — окно задержек еще не набрано)
+     */
+    private Duration hedgeDelay(RouteHedging state) {
+        if (state.latencies().count() < properties.getMinSamples()) {
+            return null;
+        }
+        long nanos = Math.max(properties.getMinDelay().toNanos(), state.latencies().percentileNanos(System.nanoTime()));
+        return Duration.ofNanos(nanos);
+    }
+
+    /**
+     * Запись задержки обмена в окно. Ошибка (в том числе таймаут) записывается прошедшим временем:
+     * это нижняя оценка задержки, которую получил клиент, и без нее хвост распределения теряется.
+     */
+    private Mono<UpstreamResponse> recordLatency(Mono<UpstreamResponse> response, RouteHedging state, long start) {
+        return response
+                .doOnNext(upstream -> state.latencies().record(System.nanoTime() - start))
+                .doOnError(ex -> state.latencies().record(System.nanoTime() - start));
+    }
+
+    /**
+     * Отправка запроса; значение выдается, только если этот ответ пришел первым (decided), соединение
+     * опоздавшего ответа сразу закрывается
+     */
+    private Mono<UpstreamResponse> send(URI uri, HttpHeaders headers, boolean hedged, AtomicBoolean decided) {
+        return httpClient
+                .headers(requestHeaders -> headers.forEach(requestHeaders::set))
+                .get()
+                .uri(uri.toASCIIString())
+                .responseConnection((response, connection) -> {
+                    if (!decided.compareAndSet(false, true)) {
+                        connection.dispose();
+                        return Mono.<UpstreamResponse>empty();
+                    }
+                    return Mono.just(new UpstreamResponse(response, connection, uri, hedged));
+                })
+                .next()
+                .timeout(properties.getResponseTimeout())
+                .doOnError(ex -> log.debug("Запрос к {} (дублирующий: {}) завершился ошибкой: {}",
+                        uri, hedged, ex.getMessage()));
+    }
+
+    private static void outcome(ServerWebExchange exchange, LoadBalancerGlobalFilter.Outcome outcome) {
+        exchange.getAttributes().put(LoadBalancerGlobalFilter.OUTCOME_ATTR, outcome);
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, UpstreamResponse upstream) {
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, upstream.uri());
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status(upstream));
+        HttpHeaders headers = new HttpHeaders();
+        upstream.response().responseHeaders().forEach(entry -> headers.add(entry.getKey(), entry.getValue()));
+        HttpHeaders filtered = HttpHeadersFilter.filter(headersFilters.getIfAvailable(), headers,
+                exchange, HttpHeadersFilter.Type.RESPONSE);
+        filtered.forEach((name, values) -> {
+            if (EXCLUDED_RESPONSE_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                response.getHeaders().put(name, values);
+            }
+        });
+
+        Connection connection = upstream.connection();
+        DataBufferFactory factory = response.bufferFactory();
+        Flux<DataBuffer> body = connection.inbound().receive().retain().map(buffer -> wrap(buffer, factory));
+        return response.writeWith(body)
+                .doOnCancel(connection::dispose)
+                .doOnError(ex -> connection.dispose());
+    }
+
+    private static HttpStatusCode status(UpstreamResponse upstream) {
+        return HttpStatusCode.valueOf(upstream.response().status().code());
+    }
+
+    // Как в NettyWriteResponseFilter: без копирования, если сервер тоже на Netty
+    private static DataBuffer wrap(ByteBuf buffer, DataBufferFactory factory) {
+        if (factory instanceof NettyDataBufferFactory nettyFactory) {
+            return nettyFactory.wrap(buffer);
+        }
+        try {
+            byte[] bytes = new byte[buffer.readableBytes()];
+            buffer.readBytes(bytes);
+            return factory.wrap(bytes);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private void count(String routeId, String result) {
+        Counter.builder("gateway.hedging.hedges")
+                .description("Hedged requests by result (sent, won = answered before the primary, budget-exhausted)")
+                .tag("route", routeId)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
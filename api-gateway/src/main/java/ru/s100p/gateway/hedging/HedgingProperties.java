@@ -0,0 +1,36 @@
+package ru.s100p.gateway.hedging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки {@code gateway.hedging.*} из application.yml
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.hedging")
+public class HedgingProperties {
+
+    private boolean enabled = true;
+    // ID маршрутов (lb://) с дублированием GET запросов
+    private List<String> routes = new ArrayList<>();
+    // Процентиль задержки маршрута, после которого отправляется дублирующий запрос
+    private double percentile = 0.95;
+    // Число последних ответов, по которым считается процентиль
+    private int windowSize = 1000;
+    // Пока ответов меньше, дублирующие запросы не отправляются
+    private int minSamples = 100;
+    // Нижняя граница задержки перед дублирующим запросом
+    private Duration minDelay = Duration.ofMillis(5);
+    // Дополнительная нагрузка на upstream: не больше этого процента от числа запросов маршрута
+    private double budgetPercent = 5;
+    // Сколько дублирующих запросов может накопиться в бюджете за спокойный период
+    private int budgetBurst = 10;
+    // Ожидание заголовков ответа upstream (тело передается клиенту потоком)
+    private Duration responseTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,65 @@
+package ru.s100p.gateway.hedging;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Скользящее окно последних задержек маршрута с вычислением процентиля.
+ *
+ * <p>Запись — одна атомарная операция в кольцевой массив. Процентиль пересчитывается сортировкой копии
+ * окна не чаще раза в {@link #RECOMPUTE_INTERVAL_NANOS}, между пересчетами отдается сохраненное значение:
+ * задержка перед дублирующим запросом не обязана быть точной, а сортировка на каждый запрос слишком дорога.</p>
+ */
+final class LatencyWindow {
+
+    private static final long RECOMPUTE_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong recorded = new AtomicLong();
+    private final double percentile;
+    private volatile long cachedNanos = -1;
+    private volatile long computedAtNanos;
+
+    LatencyWindow(int size, double percentile) {
+        this.samples = new AtomicLongArray(size);
+        this.percentile = percentile;
+    }
+
+    void record(long latencyNanos) {
+        long index = recorded.getAndIncrement();
+        samples.set((int) (index % samples.length()), latencyNanos);
+    }
+
+    long count() {
+        return recorded.get();
+    }
+
+    /**
+     * Процентиль задержки в наносекундах (-1, если ответов еще не было)
+     */
+    long percentileNanos(long nowNanos) {
+        if (cachedNanos < 0 || nowNanos - computedAtNanos >= RECOMPUTE_INTERVAL_NANOS) {
+            synchronized (this) {
+                if (cachedNanos < 0 || nowNanos - computedAtNanos >= RECOMPUTE_INTERVAL_NANOS) {
+                    cachedNanos = compute();
+                    computedAtNanos = nowNanos;
+                }
+            }
+        }
+        return cachedNanos;
+    }
+
+    private long compute() {
+        int filled = (int) Math.min(recorded.get(), samples.length());
+        if (filled == 0) {
+            return -1;
+        }
+        long[] copy = new long[filled];
+        for (int i = 0; i < filled; i++) {
+            copy[i] = samples.get(i);
+        }
+        Arrays.sort(copy);
+        return copy[Math.min(filled - 1, (int) Math.ceil(percentile * filled) - 1)];
+    }
+}
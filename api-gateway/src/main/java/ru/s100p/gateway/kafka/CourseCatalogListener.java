@@ -0,0 +1,41 @@
+package ru.s100p.gateway.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import ru.s100p.gateway.cache.EdgeResponseCache;
+import ru.s100p.shared.events.CourseCreatedEvent;
+import ru.s100p.shared.events.CourseUpdatedEvent;
+
+import static ru.s100p.shared.constants.KafkaTopicNames.COURSE_CREATED_TOPIC;
+import static ru.s100p.shared.constants.KafkaTopicNames.COURSE_UPDATED_TOPIC;
+
+@Slf4j
+@Component
+@EnableKafka
+@RequiredArgsConstructor
+public class CourseCatalogListener {
+
+    private final EdgeResponseCache edgeResponseCache;
+
+    // Изменение курса затрагивает и его страницу, и страницы каталога со списками курсов, поэтому кеш
+    // сбрасывается целиком: каталог меняется редко. Каждый экземпляр gateway слушает своей группой и только новые события
+    @KafkaListener(topics = COURSE_UPDATED_TOPIC,
+            groupId = "api-gateway-catalog-#{T(java.util.UUID).randomUUID().toString()}",
+            properties = "auto.offset.reset=latest")
+    public void handleCourseUpdated(CourseUpdatedEvent event) {
+        log.debug("Курс {} изменен, сброс кеша каталога", event.getCourseId());
+        edgeResponseCache.invalidateAll();
+    }
+
+    // Новый курс появляется в списках каталога
+    @KafkaListener(topics = COURSE_CREATED_TOPIC,
+            groupId = "api-gateway-catalog-#{T(java.util.UUID).randomUUID().toString()}",
+            properties = "auto.offset.reset=latest")
+    public void handleCourseCreated(CourseCreatedEvent event) {
+        log.debug("Курс {} создан, сброс кеша каталога", event.getCourseId());
+        edgeResponseCache.invalidateAll();
+    }
+}
@@ -0,0 +1,35 @@
+package ru.s100p.gateway.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import ru.s100p.gateway.security.RevokedTokenRegistry;
+import ru.s100p.shared.events.TokenRevokedEvent;
+
+import static ru.s100p.shared.constants.KafkaTopicNames.TOKEN_REVOCATION_TOPIC;
+
+@Slf4j
+@Component
+@EnableKafka
+@RequiredArgsConstructor
+public class TokenRevocationListener {
+
+    private final RevokedTokenRegistry revokedTokenRegistry;
+
+    // Каждый экземпляр gateway читает топик целиком с начала своей группой: так после старта восстанавливается черный список.
+    // Tombstone (value == null) означает, что токен истек и запись можно удалить
+    @KafkaListener(topics = TOKEN_REVOCATION_TOPIC,
+            groupId = "api-gateway-revocation-#{T(java.util.UUID).randomUUID().toString()}",
+            properties = "auto.offset.reset=earliest")
+    public void handleTokenRevocation(ConsumerRecord<String, TokenRevokedEvent> record) {
+        if (record.value() == null) {
+            revokedTokenRegistry.remove(record.key());
+            return;
+        }
+        revokedTokenRegistry.revoke(record.key(), record.value().getExpiresAt());
+        log.debug("Получен отзыв токена: {}", record.key());
+    }
+}
@@ -0,0 +1,55 @@
+package ru.s100p.gateway.loadbalancer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Активные проверки экземпляров из {@link InstanceRegistry}.
+ *
+ * <p>Раз в {@code health-check.interval-ms} на каждый экземпляр отправляется GET {@code health-check.path};
+ * любой ответ ниже 500 за {@code timeout} — признак живого экземпляра (у части сервисов нет actuator,
+ * и 404 от них означает, что процесс отвечает). Состояние меняется после нескольких одинаковых результатов
+ * подряд, чтобы одиночный сбой не выводил экземпляр из балансировки.</p>
+ */
+@Slf4j
+@Component
+public class InstanceHealthChecker {
+
+    private final InstanceRegistry registry;
+    private final LoadBalancerProperties properties;
+    private final WebClient webClient;
+
+    public InstanceHealthChecker(InstanceRegistry registry, LoadBalancerProperties properties,
+                                 WebClient.Builder webClientBuilder) {
+        this.registry = registry;
+        this.properties = properties;
+        this.webClient = webClientBuilder.build();
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.load-balancer.health-check.interval-ms:5000}")
+    public void checkAll() {
+        LoadBalancerProperties.HealthCheck healthCheck = properties.getHealthCheck();
+        if (!healthCheck.isEnabled()) {
+            return;
+        }
+        for (ServiceInstance instance : registry.allInstances()) {
+            webClient.get()
+                    .uri(UriComponentsBuilder.fromUri(instance.uri()).path(healthCheck.getPath()).build().toUri())
+                    .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value() < 500))
+                    .timeout(healthCheck.getTimeout())
+                    .onErrorReturn(false)
+                    .subscribe(passed -> {
+                        if (instance.recordHealthCheck(passed, healthCheck.getHealthyThreshold(), healthCheck.getUnhealthyThreshold())) {
+                            if (passed) {
+                                log.info("Экземпляр {} снова доступен", instance);
+                            } else {
+                                log.warn("Экземпляр {} не прошел проверку и выведен из балансировки", instance);
+                            }
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.s100p.gateway.loadbalancer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Локальный реестр экземпляров сервисов для маршрутов {@code lb://<service>}.
+ *
+ * <p>Экземпляры берутся из {@code gateway.load-balancer.services} и, если задан, из JSON файла
+ * {@code instances-file} ({@code {"course-service": ["http://10.0.0.5:8013", ...]}}): сервисы из файла
+ * заменяют статический список. Файл перечитывается при изменении (проверка времени модификации раз в
+ * {@code file-check-interval-ms}); ошибка чтения оставляет прежний список. Состояние экземпляра
+ * (незавершенные запросы, здоровье, исключение) сохраняется, пока его URI остается в списке.</p>
+ */
+@Slf4j
+@Component
+public class InstanceRegistry {
+
+    private static final TypeReference<Map<String, List<URI>>> FILE_FORMAT = new TypeReference<>() {
+    };
+
+    private final LoadBalancerProperties properties;
+    private final ObjectMapper objectMapper;
+
+    private volatile Map<String, List<ServiceInstance>> instances = Map.of();
+    private long fileModifiedMs = -1;
+
+    public InstanceRegistry(LoadBalancerProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        rebuild(Map.of());
+        reloadIfChanged();
+    }
+
+    /**
+     * Экземпляры сервиса (пустой список — сервис неизвестен)
+     */
+    public List<ServiceInstance> instances(String serviceId) {
+        return instances.getOrDefault(serviceId, List.of());
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.load-balancer.file-check-interval-ms:5000}",
+            initialDelayString = "${gateway.load-balancer.file-check-interval-ms:5000}")
+    public synchronized void reloadIfChanged() {
+        if (!StringUtils.hasText(properties.getInstancesFile())) {
+            return;
+        }
+        Path file = Path.of(properties.getInstancesFile());
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified == fileModifiedMs) {
+                return;
+            }
+            Map<String, List<URI>> fromFile = objectMapper.readValue(file.toFile(), FILE_FORMAT);
+            fileModifiedMs = modified;
+            rebuild(fromFile);
+            log.info("Список экземпляров загружен из {}: {}", file, instances.keySet());
+        } catch (IOException | IllegalArgumentException ex) {
+            log.warn("Не удалось прочитать список экземпляров из {}, используется прежний: {}", file, ex.getMessage());
+        }
+    }
+
+    private synchronized void rebuild(Map<String, List<URI>> fromFile) {
+        Map<String, List<URI>> merged = new LinkedHashMap<>(properties.getServices());
+        merged.putAll(fromFile);
+
+        Map<String, ServiceInstance> existing = new HashMap<>();
+        instances.values().forEach(list -> list.forEach(instance -> existing.put(key(instance.serviceId(), instance.uri()), instance)));
+
+        Map<String, List<ServiceInstance>> rebuilt = new LinkedHashMap<>();
+        merged.forEach((serviceId, uris) -> {
+            List<ServiceInstance> list = new ArrayList<>(uris.size());
+            for (URI uri : uris) {
+                list.add(existing.getOrDefault(key(serviceId, uri), new ServiceInstance(serviceId, uri)));
+            }
+            rebuilt.put(serviceId, List.copyOf(list));
+        });
+        instances = Map.copyOf(rebuilt);
+    }
+
+    private static String key(String serviceId, URI uri) {
+        return serviceId + ' ' + uri;
+    }
+
+    Collection<ServiceInstance> allInstances() {
+        return instances.values().stream().flatMap(List::stream).toList();
+    }
+}
@@ -0,0 +1,176 @@
+package ru.s100p.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Выбор экземпляра сервиса из {@link InstanceRegistry}.
+ *
+ * <p>Кандидаты — экземпляры, прошедшие активные проверки и не исключенные по ошибкам. Если таких нет,
+ * выбор идет среди всех экземпляров сервиса: отправить запрос на возможно неисправный экземпляр лучше,
+ * чем гарантированно ответить 503 (но не для дополнительного запроса с {@code exclude}). Среди кандидатов выбирается экземпляр с наименьшим числом незавершенных
+ * запросов ({@code LEAST_OUTSTANDING}) или лучший из двух случайных ({@code POWER_OF_TWO_CHOICES}).
+ * Для сервисов из {@code sticky-services} запросы одного пользователя идут на один экземпляр
+ * (rendezvous hashing: при изменении списка переезжают только пользователи ушедшего экземпляра).</p>
+ *
+ * <p>Выбранный экземпляр считается занятым до вызова {@link #release} или {@link #releaseIgnored}.</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoadBalancer {
+
+    private final InstanceRegistry registry;
+    private final LoadBalancerProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Выбор и захват экземпляра
+     *
+     * @param serviceId ID сервиса (хост в lb://)
+     * @param stickyKey ключ привязки (ID пользователя) или null
+     * @param exclude   URI экземпляра, который выбирать нельзя (например, для дублирующего запроса), или null
+     * @return экземпляр или null, если выбирать не из чего
+     */
+    public ServiceInstance choose(String serviceId, String stickyKey, URI exclude) {
+        List<ServiceInstance> all = registry.instances(serviceId);
+        long now = System.nanoTime();
+        List<ServiceInstance> candidates = new ArrayList<>(all.size());
+        for (ServiceInstance instance : all) {
+            if (instance.isAvailable(now) && !sameInstance(instance.uri(), exclude)) {
+                candidates.add(instance);
+            }
+        }
+        if (candidates.isEmpty() && exclude == null) {
+            candidates.addAll(all);
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        ServiceInstance chosen;
+        if (stickyKey != null && properties.getStickyServices().contains(serviceId)) {
+            chosen = rendezvous(candidates, stickyKey);
+        } else if (properties.getStrategy() == LoadBalancerProperties.Strategy.POWER_OF_TWO_CHOICES) {
+            chosen = powerOfTwoChoices(candidates);
+        } else {
+            chosen = leastOutstanding(candidates);
+        }
+        chosen.acquire();
+        return chosen;
+    }
+
+    /**
+     * У сервиса больше одного экземпляра (есть куда отправить дублирующий запрос)
+     */
+    public boolean hasAlternative(String serviceId) {
+        return registry.instances(serviceId).size() > 1;
+    }
+
+    /**
+     * Освобождение экземпляра с учетом результата запроса
+     *
+     * @param failed отказ соединения, таймаут или 502/503/504
+     */
+    public void release(ServiceInstance instance, boolean failed) {
+        instance.release();
+        long now = System.nanoTime();
+        LoadBalancerProperties.OutlierDetection outlier = properties.getOutlierDetection();
+        if (!failed) {
+            instance.recordSuccess();
+            instance.forgiveEjections(now, outlier.getBaseEjectionTime().toNanos());
+            return;
+        }
+        if (instance.recordError() >= outlier.getConsecutiveErrors() && !instance.isEjected(now) && canEject(instance, now)) {
+            instance.eject(now, outlier.getBaseEjectionTime().toNanos(), outlier.getMaxEjectionTime().toNanos());
+            log.warn("Экземпляр {} исключен после {} ошибок подряд", instance, outlier.getConsecutiveErrors());
+            Counter.builder("gateway.loadbalancer.ejections")
+                    .description("Instances ejected after consecutive upstream errors")
+                    .tag("service", instance.serviceId())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * Освобождение без учета результата (запрос отменен клиентом)
+     */
+    public void releaseIgnored(ServiceInstance instance) {
+        instance.release();
+    }
+
+    private boolean canEject(ServiceInstance instance, long now) {
+        List<ServiceInstance> all = registry.instances(instance.serviceId());
+        long ejected = all.stream().filter(other -> other.isEjected(now)).count();
+        return (ejected + 1) * 100 <= (long) all.size() * properties.getOutlierDetection().getMaxEjectionPercent();
+    }
+
+    private static ServiceInstance leastOutstanding(List<ServiceInstance> candidates) {
+        // Обход со случайной позиции, чтобы при равной загрузке не выбирать всегда первый экземпляр
+        int start = ThreadLocalRandom.current().nextInt(candidates.size());
+        ServiceInstance best = null;
+        for (int i = 0; i < candidates.size(); i++) {
+            ServiceInstance instance = candidates.get((start + i) % candidates.size());
+            if (best == null || instance.outstanding() < best.outstanding()) {
+                best = instance;
+            }
+        }
+        return best;
+    }
+
+    private static ServiceInstance powerOfTwoChoices(List<ServiceInstance> candidates) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        return a.outstanding() <= b.outstanding() ? a : b;
+    }
+
+    private static ServiceInstance rendezvous(List<ServiceInstance> candidates, String stickyKey) {
+        ServiceInstance best = null;
+        long bestWeight = Long.MIN_VALUE;
+        for (ServiceInstance instance : candidates) {
+            long weight = mix(stickyKey.hashCode() * 31L + instance.uri().hashCode());
+            if (best == null || weight > bestWeight) {
+                best = instance;
+                bestWeight = weight;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Финализатор SplitMix64: равномерное распределение весов при близких хешах
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private static boolean sameInstance(URI instance, URI uri) {
+        return uri != null && instance.getHost().equalsIgnoreCase(uri.getHost()) && port(instance) == port(uri);
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equals(uri.getScheme()) ? 443 : 80;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.s100p.gateway.loadbalancer;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import ru.s100p.gateway.security.AuthenticatedUser;
+
+import java.net.URI;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_SCHEME_PREFIX_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.addOriginalRequestUrl;
+
+/**
+ * Маршрутизация {@code lb://<service>} на экземпляр, выбранный {@link LoadBalancer}.
+ *
+ * <p>Заменяет URI запроса на URI экземпляра и держит экземпляр занятым до завершения обмена с upstream;
+ * отказы соединения, таймауты и ответы 502/503/504 учитываются для исключения экземпляра.
+ * Если у сервиса нет экземпляров, запрос получает 503.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class LoadBalancerGlobalFilter implements GlobalFilter, Ordered {
+
+    public static final String SCHEME = "lb";
+
+    /**
+     * Итог обмена с выбранным экземпляром, если его определяет не статус ответа клиенту (см. {@link Outcome})
+     */
+    public static final String OUTCOME_ATTR = LoadBalancerGlobalFilter.class.getName() + ".outcome";
+
+    /**
+     * Итог, выставляемый фильтром, который сам отправляет запрос на выбранный экземпляр
+     * (например, дублирующие запросы: ответ клиенту мог дать другой экземпляр)
+     */
+    public enum Outcome {
+        FAILED,
+        // Запрос отменен, не дождавшись ответа, или ответ не понадобился: экземпляр не оценивается
+        CANCELLED
+    }
+
+    // Как у ReactiveLoadBalancerClientFilter: после RouteToRequestUrlFilter (10000)
+    private static final int ORDER = 10150;
+
+    private final LoadBalancer loadBalancer;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        String schemePrefix = exchange.getAttribute(GATEWAY_SCHEME_PREFIX_ATTR);
+        if (url == null || !(SCHEME.equals(url.getScheme()) || SCHEME.equals(schemePrefix))) {
+            return chain.filter(exchange);
+        }
+        addOriginalRequestUrl(exchange, url);
+
+        String serviceId = url.getHost();
+        ServiceInstance instance = loadBalancer.choose(serviceId, stickyKey(exchange), null);
+        if (instance == null) {
+            return Mono.error(NotFoundException.create(false, "Нет экземпляров сервиса " + serviceId));
+        }
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, instance.reconstruct(url));
+
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    Outcome outcome = exchange.getAttribute(OUTCOME_ATTR);
+                    if (signal == SignalType.CANCEL || outcome == Outcome.CANCELLED) {
+                        loadBalancer.releaseIgnored(instance);
+                        return;
+                    }
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    loadBalancer.release(instance, signal == SignalType.ON_ERROR || outcome == Outcome.FAILED
+                            || isUpstreamFailure(status));
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * Ответ, по которому экземпляр считается неисправным
+     */
+    public static boolean isUpstreamFailure(HttpStatusCode status) {
+        return status != null && (status.value() == HttpStatus.BAD_GATEWAY.value()
+                || status.value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                || status.value() == HttpStatus.GATEWAY_TIMEOUT.value());
+    }
+
+    private static String stickyKey(ServerWebExchange exchange) {
+        AuthenticatedUser user = exchange.getAttribute(AuthenticatedUser.ATTRIBUTE);
+        if (user == null) {
+            return null;
+        }
+        return user.userId() != null ? user.userId().toString() : user.username();
+    }
+}
@@ -0,0 +1,62 @@
+package ru.s100p.gateway.loadbalancer;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Настройки {@code gateway.load-balancer.*} из application.yml
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.load-balancer")
+public class LoadBalancerProperties {
+
+    public enum Strategy {
+        // Экземпляр с наименьшим числом незавершенных запросов
+        LEAST_OUTSTANDING,
+        // Лучший из двух случайных экземпляров по числу незавершенных запросов
+        POWER_OF_TWO_CHOICES
+    }
+
+    private Strategy strategy = Strategy.LEAST_OUTSTANDING;
+    // Статический список экземпляров: ID сервиса (хост в lb://) -> базовые URI
+    private Map<String, List<URI>> services = new LinkedHashMap<>();
+    // JSON файл того же формата; перечисленные в нем сервисы заменяют статический список
+    private String instancesFile;
+    private long fileCheckIntervalMs = 5000;
+    // Сервисы, запросы одного пользователя к которым по возможности идут на один экземпляр
+    private List<String> stickyServices = new ArrayList<>();
+    private HealthCheck healthCheck = new HealthCheck();
+    private OutlierDetection outlierDetection = new OutlierDetection();
+
+    @Data
+    public static class HealthCheck {
+        private boolean enabled = true;
+        // Любой ответ ниже 500 считается признаком живого экземпляра
+        private String path = "/actuator/health";
+        private long intervalMs = 5000;
+        private Duration timeout = Duration.ofSeconds(2);
+        // Сколько проверок подряд нужно для смены состояния экземпляра
+        private int unhealthyThreshold = 2;
+        private int healthyThreshold = 2;
+    }
+
+    @Data
+    public static class OutlierDetection {
+        // Ошибок подряд (отказ соединения, таймаут, 502/503/504) до исключения экземпляра
+        private int consecutiveErrors = 5;
+        // Время исключения растет с каждым повторным исключением до max-ejection-time
+        private Duration baseEjectionTime = Duration.ofSeconds(30);
+        private Duration maxEjectionTime = Duration.ofMinutes(5);
+        // Больше этой доли экземпляров сервиса одновременно не исключается
+        private int maxEjectionPercent = 50;
+    }
+}
@@ -0,0 +1,129 @@
+package ru.s100p.gateway.loadbalancer;
+
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Экземпляр сервиса в {@link InstanceRegistry} и его текущее состояние: незавершенные запросы,
+ * результат активных проверок и исключение по ошибкам (outlier ejection).
+ *
+ * <p>Состояние переживает перезагрузку списка экземпляров, если URI экземпляра не изменился.</p>
+ */
+public final class ServiceInstance {
+
+    private final String serviceId;
+    private final URI uri;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveErrors = new AtomicInteger();
+    private volatile boolean healthy = true;
+    private volatile long ejectedUntilNanos;
+    // Исключений подряд; пока 0, ejectedUntilNanos не используется
+    private volatile int ejections;
+    private int healthStreak;
+
+    ServiceInstance(String serviceId, URI uri) {
+        this.serviceId = serviceId;
+        this.uri = uri;
+    }
+
+    public String serviceId() {
+        return serviceId;
+    }
+
+    public URI uri() {
+        return uri;
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Экземпляр прошел активные проверки и не исключен по ошибкам
+     */
+    public boolean isAvailable(long nowNanos) {
+        return healthy && !isEjected(nowNanos);
+    }
+
+    boolean isEjected(long nowNanos) {
+        return ejections > 0 && ejectedUntilNanos - nowNanos > 0;
+    }
+
+    /**
+     * Тот же запрос, направленный на этот экземпляр (схема, хост и порт экземпляра, путь и query исходные)
+     */
+    public URI reconstruct(URI original) {
+        return UriComponentsBuilder.fromUri(original)
+                .scheme(uri.getScheme())
+                .host(uri.getHost())
+                .port(uri.getPort())
+                .build(true)
+                .toUri();
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    /**
+     * Учет ошибки запроса
+     *
+     * @return число ошибок подряд
+     */
+    int recordError() {
+        return consecutiveErrors.incrementAndGet();
+    }
+
+    void recordSuccess() {
+        consecutiveErrors.set(0);
+    }
+
+    /**
+     * Исключение экземпляра; каждое следующее исключение подряд вдвое длиннее предыдущего
+     */
+    synchronized void eject(long nowNanos, long baseNanos, long maxNanos) {
+        long duration = Math.min(maxNanos, baseNanos << Math.min(ejections, 16));
+        ejectedUntilNanos = nowNanos + duration;
+        ejections++;
+        consecutiveErrors.set(0);
+    }
+
+    /**
+     * Экземпляр отработал без исключения дольше базового времени — счетчик повторных исключений сбрасывается
+     */
+    synchronized void forgiveEjections(long nowNanos, long baseNanos) {
+        if (ejections > 0 && nowNanos - ejectedUntilNanos > baseNanos) {
+            ejections = 0;
+        }
+    }
+
+    /**
+     * Учет результата активной проверки
+     *
+     * @return состояние изменилось
+     */
+    synchronized boolean recordHealthCheck(boolean passed, int healthyThreshold, int unhealthyThreshold) {
+        if (passed == healthy) {
+            healthStreak = 0;
+            return false;
+        }
+        healthStreak++;
+        if (healthStreak >= (passed ? healthyThreshold : unhealthyThreshold)) {
+            healthy = passed;
+            healthStreak = 0;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return serviceId + "@" + uri;
+    }
+}
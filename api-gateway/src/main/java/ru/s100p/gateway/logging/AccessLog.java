@@ -0,0 +1,151 @@
+package ru.s100p.gateway.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import ru.s100p.gateway.support.MpscRingBuffer;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Access лог gateway: выборка по маршрутам и асинхронная запись.
+ *
+ * <p>Event loop только кладет {@link AccessLogEntry} в кольцевой буфер без блокировок, а форматирование
+ * в JSON и вывод в логгер {@code ACCESS_LOG} выполняет отдельный поток.</p>
+ *
+ *
+ * <p>Если поток записи не успевает и буфер заполнен, записи отбрасываются (метрика
+ * {@code gateway.access-log.dropped}) — обработка запросов никогда не ждет логирования.</p>
+ */
+@Component
+public class AccessLog {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("ACCESS_LOG");
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final AccessLogProperties properties;
+    private final MpscRingBuffer<AccessLogEntry> buffer;
+    private final Counter dropped;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    public AccessLog(AccessLogProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.buffer = new MpscRingBuffer<>(properties.getBufferCapacity());
+        this.dropped = Counter.builder("gateway.access-log.dropped")
+                .description("Access log entries dropped because the ring buffer was full")
+                .register(meterRegistry);
+        this.writerThread = new Thread(this::drainLoop, "access-log-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() {
+        writerThread.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(2));
+    }
+
+    /**
+     * Доля логируемых успешных запросов маршрута
+     */
+    public double sampleRate(String routeId) {
+        Double rate = routeId != null ? properties.getSampleRates().get(routeId) : null;
+        return rate != null ? rate : properties.getDefaultSampleRate();
+    }
+
+    public boolean isSlow(long latencyMs) {
+        return latencyMs >= properties.getSlowThreshold().toMillis();
+    }
+
+    public void request(long timestampMs, String message, String routeId, String method, String path) {
+        write(new AccessLogEntry(timestampMs, "request", message, routeId, method, path, 0, -1, -1, null, null));
+    }
+
+    public void response(long timestampMs, String message, String routeId, String method, String path,
+                         int status, long latencyMs, long bytes, Long userId, String error) {
+        write(new AccessLogEntry(timestampMs, "response", message, routeId, method, path, status, latencyMs,
+                bytes, userId, error));
+    }
+
+    private void write(AccessLogEntry entry) {
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        while (running) {
+            if (!drain(line)) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drain(line);
+    }
+
+    private boolean drain(StringBuilder line) {
+        boolean drained = false;
+        AccessLogEntry entry;
+        while ((entry = buffer.poll()) != null) {
+            drained = true;
+            line.setLength(0);
+            format(entry, line);
+            ACCESS_LOG.info(line.toString());
+        }
+        return drained;
+    }
+
+    private static void format(AccessLogEntry entry, StringBuilder line) {
+        line.append('{');
+        appendString(line, "ts", Instant.ofEpochMilli(entry.timestampMs()).toString()).append(',');
+        appendString(line, "phase", entry.phase()).append(',');
+        appendString(line, "msg", entry.message()).append(',');
+        appendString(line, "route", entry.routeId()).append(',');
+        appendString(line, "method", entry.method()).append(',');
+        appendString(line, "path", entry.path()).append(',');
+        line.append("\"status\":").append(entry.status()).append(',');
+        line.append("\"latencyMs\":").append(entry.latencyMs()).append(',');
+        line.append("\"bytes\":").append(entry.bytes()).append(',');
+        line.append("\"userId\":").append(entry.userId()).append(',');
+        appendString(line, "error", entry.error());
+        line.append('}');
+    }
+
+    private static StringBuilder appendString(StringBuilder line, String name, String value) {
+        line.append('"').append(name).append("\":");
+        if (value == null) {
+            return line.append("null");
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        return line.append('"');
+    }
+}
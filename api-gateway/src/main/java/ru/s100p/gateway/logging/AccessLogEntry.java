@@ -0,0 +1,32 @@
+package ru.s100p.gateway.logging;
+
+/**
+ * Запись access лога с фиксированным набором полей. Создается на event loop только для логируемых запросов,
+ * форматируется в JSON уже в потоке записи {@link AccessLog}.
+ *
+ * @param timestampMs время начала запроса
+ * @param phase       "request" (preLogger) или "response" (postLogger)
+ * @param message     baseMessage из настроек фильтра
+ * @param routeId     ID маршрута
+ * @param method      HTTP метод
+ * @param path        путь исходного запроса
+ * @param status      HTTP статус ответа (0 — еще нет)
+ * @param latencyMs   время обработки запроса gateway вместе с ожиданием upstream (-1 — еще нет)
+ * @param bytes       размер тела ответа (-1 — неизвестен)
+ * @param userId      ID пользователя из JWT (null — анонимный запрос)
+ * @param error       класс исключения, если запрос завершился ошибкой
+ */
+record AccessLogEntry(
+        long timestampMs,
+        String phase,
+        String message,
+        String routeId,
+        String method,
+        String path,
+        int status,
+        long latencyMs,
+        long bytes,
+        Long userId,
+        String error
+) {
+}
@@ -0,0 +1,27 @@
+package ru.s100p.gateway.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки {@code gateway.access-log.*} из application.yml
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.access-log")
+public class AccessLogProperties {
+
+    // Емкость кольцевого буфера (округляется вверх до степени двойки); при переполнении записи отбрасываются
+    private int bufferCapacity = 8192;
+    // Доля логируемых успешных запросов для маршрутов без своей настройки (0..1)
+    private double defaultSampleRate = 1.0;
+    // Доля логируемых успешных запросов по ID маршрута
+    private Map<String, Double> sampleRates = new HashMap<>();
+    // Запросы дольше этого времени логируются всегда
+    private Duration slowThreshold = Duration.ofSeconds(1);
+}
@@ -0,0 +1,153 @@
+package ru.s100p.gateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import ru.s100p.gateway.security.AuthenticatedUser;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Ограничение частоты запросов по настройкам {@code rate-limiter.*}.
+ *
+ * <p>Для каждой пары (правило, клиент) хранится своя {@link TokenBucket}. Клиент — ID пользователя, если
+ * запрос уже аутентифицирован фильтром {@code JwtAuthentication}, иначе IP адрес (так ограничивается
+ * перебор паролей на /auth/login до того, как запрос дойдет до BCrypt в user-service). Правило выбирается
+ * по исходному пути запроса: первый подходящий {@code endpoints[].path}, иначе лимит по умолчанию.</p>
+ *
+ * <p>Фильтр выполняется после фильтров маршрута (чтобы знать пользователя), но до проксирования.
+ * При превышении лимита возвращается 429 с {@code Retry-After}. Полностью пополненные корзины
+ * периодически удаляются — для лимитера они эквивалентны отсутствующим.</p>
+ */
+@Slf4j
+@Component
+public class RateLimitGlobalFilter implements GlobalFilter, Ordered {
+
+    // После фильтров маршрута (их порядок — номер в списке filters), но до RouteToRequestUrlFilter (10000)
+    private static final int ORDER = 1000;
+
+    private final RateLimiterProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<Rule> rules;
+    private final Rule defaultRule;
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private record Rule(String name, PathPattern pattern, long replenishRate, long burstCapacity) {
+    }
+
+    public RateLimitGlobalFilter(RateLimiterProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.defaultRule = new Rule("default", null,
+                properties.getDefaultReplenishRate(), properties.getDefaultBurstCapacity());
+        this.rules = properties.getEndpoints().stream()
+                .map(endpoint -> new Rule(endpoint.getPath(),
+                        PathPatternParser.defaultInstance.parse(endpoint.getPath()),
+                        endpoint.getReplenishRate(), endpoint.getBurstCapacity()))
+                .toList();
+
+        Gauge.builder("gateway.ratelimit.buckets", buckets, ConcurrentHashMap::size)
+                .description("Active rate limiter buckets")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        Rule rule = resolveRule(originalPath(exchange));
+        String bucketKey = rule.name() + '|' + clientKey(exchange);
+        long now = System.nanoTime();
+        long waitNanos = buckets
+                .computeIfAbsent(bucketKey, key -> new TokenBucket(rule.replenishRate(), rule.burstCapacity(), now))
+                .tryConsume(now);
+        if (waitNanos == 0) {
+            return chain.filter(exchange);
+        }
+
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        Counter.builder("gateway.ratelimit.rejected")
+                .description("Requests rejected by the rate limiter")
+                .tag("route", route != null ? route.getId() : "unknown")
+                .tag("limit", rule.name())
+                .register(meterRegistry)
+                .increment();
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return exchange.getResponse().setComplete();
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    // Между взятием корзины из map и ее удалением здесь запрос может попасть в уже удаленную корзину:
+    // это дает клиенту не больше одного лишнего запроса и не стоит блокировок на горячем пути
+    @Scheduled(fixedDelayString = "${rate-limiter.idle-eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+        log.debug("Rate limiter: удалено {} неактивных корзин", before - buckets.size());
+    }
+
+    private Rule resolveRule(String path) {
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        for (Rule rule : rules) {
+            if (rule.pattern().matches(pathContainer)) {
+                return rule;
+            }
+        }
+        return defaultRule;
+    }
+
+    // RewritePath сохраняет исходный URI первым в GATEWAY_ORIGINAL_REQUEST_URL_ATTR
+    private static String originalPath(ServerWebExchange exchange) {
+        Set<URI> originalUris = exchange.getAttributeOrDefault(GATEWAY_ORIGINAL_REQUEST_URL_ATTR, Collections.emptySet());
+        return originalUris.isEmpty()
+                ? exchange.getRequest().getPath().value()
+                : originalUris.iterator().next().getRawPath();
+    }
+
+    /**
+     * Ключ клиента: ID пользователя после JwtAuthentication, иначе IP адрес
+     */
+    public static String clientKey(ServerWebExchange exchange) {
+        AuthenticatedUser user = exchange.getAttribute(AuthenticatedUser.ATTRIBUTE);
+        if (user != null) {
+            return "user:" + (user.userId() != null ? user.userId() : user.username());
+        }
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        return "ip:" + (remoteAddress != null && remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress()
+                : "unknown");
+    }
+}
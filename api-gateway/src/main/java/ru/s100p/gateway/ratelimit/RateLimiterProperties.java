@@ -0,0 +1,31 @@
+package ru.s100p.gateway.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки {@code rate-limiter.*} из application.yml.
+ * Скорость пополнения — токенов (запросов) в секунду, емкость — допустимый всплеск.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limiter")
+public class RateLimiterProperties {
+
+    private boolean enabled = true;
+    private long defaultReplenishRate = 10;
+    private long defaultBurstCapacity = 20;
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    @Data
+    public static class Endpoint {
+        // Шаблон пути исходного запроса (до RewritePath), например /api/v1/payments/**
+        private String path;
+        private long replenishRate;
+        private long burstCapacity;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.s100p.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Неблокирующий token bucket с ленивым пополнением.
+ *
+ * <p>Состояние (остаток токенов и момент последнего пересчета) заменяется целиком через CAS,
+ * поэтому фоновый поток пополнения не нужен: токены начисляются при обращении за прошедшее время.</p>
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    private record State(double tokens, long timestampNanos) {
+    }
+
+    TokenBucket(long replenishRatePerSecond, long burstCapacity, long nowNanos) {
+        this.capacity = burstCapacity;
+        this.tokensPerNano = replenishRatePerSecond / 1_000_000_000d;
+        this.state = new AtomicReference<>(new State(burstCapacity, nowNanos));
+    }
+
+    /**
+     * Попытка взять один токен.
+     *
+     * @return 0, если запрос разрешен, иначе сколько наносекунд ждать до появления токена
+     */
+    long tryConsume(long nowNanos) {
+        while (true) {
+            State current = state.get();
+            double available = available(current, nowNanos);
+            if (available < 1) {
+                return (long) Math.ceil((1 - available) / tokensPerNano);
+            }
+            long timestamp = Math.max(nowNanos, current.timestampNanos());
+            if (state.compareAndSet(current, new State(available - 1, timestamp))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Корзина полностью пополнена — ее удаление неотличимо от сохранения
+     */
+    boolean isFull(long nowNanos) {
+        return available(state.get(), nowNanos) >= capacity;
+    }
+
+    private double available(State state, long nowNanos) {
+        long elapsed = Math.max(0, nowNanos - state.timestampNanos());
+        return Math.min(capacity, state.tokens() + elapsed * tokensPerNano);
+    }
+}
@@ -0,0 +1,166 @@
+package ru.s100p.gateway.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+import static ru.s100p.shared.constants.SecurityConstants.CLAIM_AUTHORITIES;
+import static ru.s100p.shared.constants.SecurityConstants.CLAIM_SECURITY_VERSION;
+import static ru.s100p.shared.constants.SecurityConstants.CLAIM_USER_ID;
+
+/**
+ * Проверка access токенов на gateway без блокирующих вызовов.
+ *
+ * <p>Результат проверки подписи кешируется по SHA-256 хешу токена до момента его истечения: клиенты
+ * повторяют один и тот же токен сотни раз, поэтому RSA проверка выполняется почти только для новых токенов.
+ * Сам токен в кеше не хранится. Черный список проверяется на каждом запросе, так как отзыв может прийти
+ * уже после того, как токен попал в кеш.</p>
+ *
+ * <p>Ключ проверки берется из {@link JwksKeyProvider} по kid. Если kid неизвестен (ключ только что
+ * ротирован), JWKS догружается асинхронно и проверка повторяется один раз.</p>
+ */
+@Slf4j
+@Component
+public class AccessTokenVerifier {
+
+    private final JwksKeyProvider keyProvider;
+    private final RevokedTokenRegistry revokedTokenRegistry;
+    private final Cache<String, AuthenticatedUser> verifiedTokens;
+    private final JwtParser jwtParser;
+
+    public AccessTokenVerifier(JwksKeyProvider keyProvider,
+                               RevokedTokenRegistry revokedTokenRegistry,
+                               @Value("${jwt.verified-cache.maximum-size:100000}") long maximumSize) {
+        this.keyProvider = keyProvider;
+        this.revokedTokenRegistry = revokedTokenRegistry;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        Key key = keyProvider.find(header.getKeyId());
+                        if (key == null) {
+                            throw new UnknownKeyIdException(header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Проверка токена. Пустой Mono — токен подделан, поврежден, истек или отозван.
+     */
+    public Mono<AuthenticatedUser> verify(String token) {
+        String cacheKey = hash(token);
+        AuthenticatedUser cached = verifiedTokens.getIfPresent(cacheKey);
+        Mono<AuthenticatedUser> verified = cached != null ? Mono.just(cached) : parse(cacheKey, token);
+
+        return verified.filter(user -> !user.isExpired() && !revokedTokenRegistry.isRevoked(user.tokenId()));
+    }
+
+    private Mono<AuthenticatedUser> parse(String cacheKey, String token) {
+        try {
+            return Mono.just(parseAndCache(cacheKey, token));
+        } catch (UnknownKeyIdException ex) {
+            // Новый ключ после ротации: догружаем JWKS и проверяем еще раз
+            return keyProvider.resolve(ex.getKeyId())
+                    .flatMap(key -> Mono.fromCallable(() -> parseAndCache(cacheKey, token)))
+                    .onErrorResume(AccessTokenVerifier::isInvalidToken, e -> Mono.empty());
+        } catch (JwtException | IllegalArgumentException ex) {
+            log.debug("JWT token rejected: {}", ex.getMessage());
+            return Mono.empty();
+        }
+    }
+
+    private AuthenticatedUser parseAndCache(String cacheKey, String token) {
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        AuthenticatedUser user = new AuthenticatedUser(
+                claims.getId() != null ? claims.getId() : token,
+                claims.get(CLAIM_USER_ID) instanceof Number id ? id.longValue() : null,
+                claims.getSubject(),
+                extractAuthorities(claims),
+                claims.get(CLAIM_SECURITY_VERSION) instanceof Number version ? version.longValue() : null,
+                claims.getExpiration().toInstant()
+        );
+        verifiedTokens.put(cacheKey, user);
+        return user;
+    }
+
+    private static List<String> extractAuthorities(Claims claims) {
+        if (claims.get(CLAIM_AUTHORITIES) instanceof List<?> list) {
+            return list.stream().map(String::valueOf).toList();
+        }
+        return List.of();
+    }
+
+    private static boolean isInvalidToken(Throwable ex) {
+        return ex instanceof JwtException || ex instanceof IllegalArgumentException || ex instanceof UnknownKeyIdException;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * Запись живет ровно до истечения токена
+     */
+    private static final class UntilTokenExpiry implements Expiry<String, AuthenticatedUser> {
+
+        @Override
+        public long expireAfterCreate(String key, AuthenticatedUser user, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), user.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, AuthenticatedUser user, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, user, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, AuthenticatedUser user, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private static final class UnknownKeyIdException extends RuntimeException {
+
+        private final String keyId;
+
+        UnknownKeyIdException(String keyId) {
+            super("Unknown JWT key id: " + keyId, null, false, false);
+            this.keyId = keyId;
+        }
+
+        String getKeyId() {
+            return keyId;
+        }
+    }
+}
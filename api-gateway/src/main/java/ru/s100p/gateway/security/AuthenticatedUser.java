@@ -0,0 +1,41 @@
+package ru.s100p.gateway.security;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Пользователь, чей access токен прошел проверку на gateway.
+ *
+ * <p>Кладется в атрибуты exchange фильтром {@code JwtAuthentication}, откуда его читают
+ * последующие фильтры маршрута (например, {@code Authentication} с проверкой ролей).</p>
+ *
+ * @param tokenId     идентификатор токена (jti) для проверки черного списка
+ * @param userId      ID пользователя (может отсутствовать в старых токенах)
+ * @param username    владелец токена (subject)
+ * @param authorities роли и права из claim "authorities"
+ * @param securityVersion версия безопасности пользователя из claim "secVersion" (может отсутствовать)
+ * @param expiresAt   момент истечения срока действия токена
+ */
+public record AuthenticatedUser(
+        String tokenId,
+        Long userId,
+        String username,
+        List<String> authorities,
+        Long securityVersion,
+        Instant expiresAt
+) {
+
+    public static final String ATTRIBUTE = AuthenticatedUser.class.getName();
+
+    public boolean isExpired() {
+        return !expiresAt.isAfter(Instant.now());
+    }
+
+    /**
+     * Есть ли у пользователя хотя бы одна из требуемых ролей (пустой список — ограничений нет)
+     */
+    public boolean hasAnyAuthority(Collection<String> required) {
+        return required == null || required.isEmpty() || required.stream().anyMatch(authorities::contains);
+    }
+}
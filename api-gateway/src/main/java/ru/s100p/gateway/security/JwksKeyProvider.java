@@ -0,0 +1,137 @@
+package ru.s100p.gateway.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import ru.s100p.shared.utils.JwkUtils;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Кеш публичных ключей проверки JWT (kid -> ключ), загружаемых из JWKS user-service.
+ *
+ * <p>Ключи обновляются по расписанию и при встрече неизвестного kid (новый ключ после ротации).
+ * Одновременные обновления схлопываются в один запрос, а внеплановые обновления ограничены
+ * {@code jwt.jwks.min-refresh-interval-ms}, чтобы токены с произвольным kid не превращались в поток
+ * запросов к user-service. Поиск ключа в кеше не блокирует поток и не выполняет ввода-вывода.</p>
+ */
+@Slf4j
+@Component
+public class JwksKeyProvider {
+
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(5);
+
+    private final WebClient webClient;
+    private final String jwksUri;
+    private final long minRefreshIntervalMs;
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private volatile long lastRefreshAttemptMs;
+    private final AtomicReference<Mono<Void>> refreshInFlight = new AtomicReference<>();
+
+    public JwksKeyProvider(WebClient.Builder webClientBuilder,
+                           @Value("${jwt.jwks-uri}") String jwksUri,
+                           @Value("${jwt.jwks.min-refresh-interval-ms:10000}") long minRefreshIntervalMs) {
+        this.webClient = webClientBuilder.build();
+        this.jwksUri = jwksUri;
+        this.minRefreshIntervalMs = minRefreshIntervalMs;
+    }
+
+    /**
+     * Ключ из кеша без обращения к сети (null, если kid неизвестен)
+     */
+    public PublicKey find(String kid) {
+        return kid != null ? keys.get(kid) : null;
+    }
+
+    /**
+     * Ключ по kid; для неизвестного kid выполняется (не чаще допустимого) обновление JWKS.
+     * Пустой Mono — ключ не найден и после обновления.
+     */
+    public Mono<PublicKey> resolve(String kid) {
+        PublicKey key = find(kid);
+        if (key != null || kid == null) {
+            return Mono.justOrEmpty(key);
+        }
+        return refresh(false).then(Mono.fromSupplier(() -> find(kid)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        refresh(true).subscribe();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.jwks.refresh-interval-ms:300000}",
+            initialDelayString = "${jwt.jwks.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        refresh(true).subscribe();
+    }
+
+    private Mono<Void> refresh(boolean force) {
+        Mono<Void> inFlight = refreshInFlight.get();
+        if (inFlight != null) {
+            return inFlight;
+        }
+        if (!force && System.currentTimeMillis() - lastRefreshAttemptMs < minRefreshIntervalMs) {
+            return Mono.empty();
+        }
+
+        Mono<Void> fetch = fetchKeys()
+                .doFinally(signal -> refreshInFlight.set(null))
+                .cache();
+        if (!refreshInFlight.compareAndSet(null, fetch)) {
+            Mono<Void> other = refreshInFlight.get();
+            return other != null ? other : Mono.empty();
+        }
+        lastRefreshAttemptMs = System.currentTimeMillis();
+        return fetch;
+    }
+
+    private Mono<Void> fetchKeys() {
+        return webClient.get()
+                .uri(jwksUri)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, List<Map<String, Object>>>>() {
+                })
+                .timeout(FETCH_TIMEOUT)
+                .doOnNext(this::applyJwks)
+                .doOnError(ex -> log.warn("Не удалось загрузить JWKS из {}: {}", jwksUri, ex.getMessage()))
+                .onErrorResume(ex -> Mono.empty())
+                .then();
+    }
+
+    private void applyJwks(Map<String, List<Map<String, Object>>> jwks) {
+        Map<String, PublicKey> loaded = new HashMap<>();
+        for (Map<String, Object> jwk : jwks.getOrDefault("keys", List.of())) {
+            if (!JwkUtils.ALGORITHM_RS256.equals(jwk.get("alg"))) {
+                continue;
+            }
+            try {
+                loaded.put((String) jwk.get("kid"), JwkUtils.fromJwk(jwk));
+            } catch (GeneralSecurityException | RuntimeException ex) {
+                log.warn("Пропущен некорректный JWK {}: {}", jwk.get("kid"), ex.getMessage());
+            }
+        }
+
+        if (loaded.isEmpty()) {
+            log.warn("JWKS из {} не содержит ключей RS256, используется прежний набор", jwksUri);
+            return;
+        }
+        if (!loaded.keySet().equals(keys.keySet())) {
+            log.info("Ключи проверки JWT обновлены: {}", loaded.keySet());
+        }
+        keys = Map.copyOf(loaded);
+    }
+}
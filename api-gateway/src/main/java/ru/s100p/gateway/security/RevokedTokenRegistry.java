@@ -0,0 +1,44 @@
+package ru.s100p.gateway.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Локальная копия черного списка access токенов (ключ — jti).
+ *
+ * <p>Заполняется из компактируемого топика отзывов, который публикует user-service, поэтому проверка
+ * на каждом запросе не требует обращения к user-service или общему хранилищу. Записи живут до {@code exp}
+ * своего токена и удаляются по расписанию или по tombstone из топика.</p>
+ */
+@Slf4j
+@Component
+public class RevokedTokenRegistry {
+
+    private final ConcurrentHashMap<String, Long> expiryByTokenId = new ConcurrentHashMap<>();
+
+    public void revoke(String tokenId, Instant expiresAt) {
+        long expiresAtMs = expiresAt.toEpochMilli();
+        if (expiresAtMs > System.currentTimeMillis()) {
+            expiryByTokenId.put(tokenId, expiresAtMs);
+        }
+    }
+
+    public void remove(String tokenId) {
+        expiryByTokenId.remove(tokenId);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        Long expiresAtMs = expiryByTokenId.get(tokenId);
+        return expiresAtMs != null && expiresAtMs > System.currentTimeMillis();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        expiryByTokenId.values().removeIf(expiresAtMs -> expiresAtMs <= now);
+    }
+}
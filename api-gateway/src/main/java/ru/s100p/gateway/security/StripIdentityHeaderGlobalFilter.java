@@ -0,0 +1,35 @@
+package ru.s100p.gateway.security;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static ru.s100p.shared.constants.ApiConstants.IDENTITY_HEADER;
+
+/**
+ * Удаление присланного клиентом {@code X-User-Identity} на всех маршрутах.
+ *
+ * <p>Сервисы доверяют этому заголовку от адресов gateway, поэтому перехваченный действительный заголовок,
+ * переданный через маршрут без {@code JwtAuthentication}, иначе дошел бы до сервиса как подлинный.</p>
+ */
+@Component
+public class StripIdentityHeaderGlobalFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!exchange.getRequest().getHeaders().containsKey(IDENTITY_HEADER)) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange.mutate()
+                .request(request -> request.headers(headers -> headers.remove(IDENTITY_HEADER)))
+                .build());
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
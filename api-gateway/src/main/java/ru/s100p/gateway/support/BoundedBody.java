@@ -0,0 +1,58 @@
+package ru.s100p.gateway.support;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Сборка тела ответа в память с ограничением размера.
+ *
+ * <p>Буферы накапливаются, пока их суммарный размер не превышает {@code maxBytes}. Если тело закончилось
+ * раньше, оно целиком передается в {@code whole} массивом байтов. Иначе накопленные буферы вместе с остатком
+ * тела передаются потоком в {@code overflow} — в памяти никогда не держится больше {@code maxBytes}
+ * (плюс один буфер), даже если длина тела заранее неизвестна (chunked).</p>
+ */
+public final class BoundedBody {
+
+    private BoundedBody() {
+    }
+
+    public static Mono<Void> collect(Publisher<? extends DataBuffer> body, long maxBytes,
+                                     Function<byte[], Mono<Void>> whole,
+                                     Function<Flux<DataBuffer>, Mono<Void>> overflow) {
+        AtomicLong total = new AtomicLong();
+        return Flux.<DataBuffer>from(body)
+                // Первая пачка закрывается либо на превышении предела, либо с концом тела
+                .bufferUntil(buffer -> total.addAndGet(buffer.readableByteCount()) > maxBytes)
+                .switchOnFirst((first, chunks) -> {
+                    if (first.isOnError()) {
+                        return Mono.<Void>error(first.getThrowable());
+                    }
+                    if (first.hasValue() && total.get() > maxBytes) {
+                        return overflow.apply(chunks.concatMapIterable(Function.identity()));
+                    }
+                    return whole.apply(toBytes(first.hasValue() ? first.get() : List.of()));
+                })
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                .then();
+    }
+
+    private static byte[] toBytes(List<DataBuffer> buffers) {
+        int size = buffers.stream().mapToInt(DataBuffer::readableByteCount).sum();
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (DataBuffer buffer : buffers) {
+            int length = buffer.readableByteCount();
+            buffer.read(bytes, offset, length);
+            offset += length;
+            DataBufferUtils.release(buffer);
+        }
+        return bytes;
+    }
+}
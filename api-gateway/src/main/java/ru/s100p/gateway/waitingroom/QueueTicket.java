@@ -0,0 +1,13 @@
+package ru.s100p.gateway.waitingroom;
+
+/**
+ * Билет очереди маршрута.
+ *
+ * @param routeId  маршрут, в очередь которого выдан билет
+ * @param epoch    момент запуска gateway, выдавшего билет (номера очереди после перезапуска начинаются заново)
+ * @param sequence номер в очереди
+ * @param clientKey владелец билета (ID пользователя или IP), чтобы билет нельзя было передать другому
+ * @param issuedAt момент выдачи (секунды)
+ */
+public record QueueTicket(String routeId, long epoch, long sequence, String clientKey, long issuedAt) {
+}
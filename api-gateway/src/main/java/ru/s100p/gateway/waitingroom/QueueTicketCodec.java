@@ -0,0 +1,68 @@
+package ru.s100p.gateway.waitingroom;
+
+import ru.s100p.shared.security.HmacSigner;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Билет очереди в виде строки, подписанной HMAC-SHA256.
+ *
+ * <p>Формат: {@code <b64url(routeId)>.<epoch>.<sequence>.<b64url(clientKey)>.<issuedAt>.<b64url(hmac)>}.
+ * Состояние очереди хранится в памяти gateway, а билет лишь подтверждает номер, выданный этим gateway,
+ * поэтому проверка не требует обращений к хранилищу.</p>
+ */
+final class QueueTicketCodec {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final HmacSigner signer;
+    private final long ttlSeconds;
+
+    QueueTicketCodec(String secret, Duration ttl) {
+        this.signer = new HmacSigner(secret, "билетов очереди");
+        this.ttlSeconds = ttl.toSeconds();
+    }
+
+    String encode(QueueTicket ticket) {
+        String payload = String.join(".",
+                ENCODER.encodeToString(ticket.routeId().getBytes(StandardCharsets.UTF_8)),
+                Long.toString(ticket.epoch()),
+                Long.toString(ticket.sequence()),
+                ENCODER.encodeToString(ticket.clientKey().getBytes(StandardCharsets.UTF_8)),
+                Long.toString(ticket.issuedAt()));
+        return signer.sign(payload);
+    }
+
+    /**
+     * @return билет или пустой Optional, если строка повреждена, подделана или билет истек
+     */
+    Optional<QueueTicket> decode(String value) {
+        Optional<String> verified = signer.verify(value);
+        if (verified.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            String payload = verified.get();
+            String[] parts = payload.split("\\.", -1);
+            if (parts.length != 5) {
+                return Optional.empty();
+            }
+            long issuedAt = Long.parseLong(parts[4]);
+            if (System.currentTimeMillis() / 1000 > issuedAt + ttlSeconds) {
+                return Optional.empty();
+            }
+            return Optional.of(new QueueTicket(
+                    new String(DECODER.decode(parts[0]), StandardCharsets.UTF_8),
+                    Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2]),
+                    new String(DECODER.decode(parts[3]), StandardCharsets.UTF_8),
+                    issuedAt));
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ru.s100p.gateway.waitingroom;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Очередь одного маршрута: счетчик выданных номеров и граница допуска, которая сдвигается
+ * со скоростью {@code admitRatePerSecond}, пока у маршрута есть свободные места ({@code inFlight < capacity}).
+ *
+ * <p>Номер допущен, если он не больше границы, поэтому допуск строго FIFO и не требует хранить
+ * сами билеты — хранятся только номера уже использованных билетов (билет одноразовый). Пока очередь пуста
+ * или маршрут загружен до {@code capacity}, запас допуска не накапливается — очередь не пропускает разом
+ * пачку запросов ни после всплеска, ни после того, как сервис снова начал успевать.</p>
+ */
+final class RouteQueue {
+
+    private final WaitingRoomProperties.Room settings;
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Номера, по которым уже пропущен запрос, и срок действия их билетов (секунды)
+    private final Map<Long, Long> redeemed = new ConcurrentHashMap<>();
+    private volatile long admitted;
+    // Дробная часть допуска, накопленная между тиками
+    private double admitCredit;
+    private long lastAdvanceNanos;
+
+    RouteQueue(WaitingRoomProperties.Room settings, long nowNanos) {
+        this.settings = settings;
+        this.lastAdvanceNanos = nowNanos;
+    }
+
+    /**
+     * Выдача номера в конце очереди
+     *
+     * @return номер или -1, если очередь заполнена
+     */
+    long enqueue() {
+        while (true) {
+            long current = issued.get();
+            if (current - admitted >= settings.getMaxQueueSize()) {
+                return -1;
+            }
+            if (issued.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    boolean isAdmitted(long sequence) {
+        return sequence <= admitted;
+    }
+
+    boolean isRedeemed(long sequence) {
+        return redeemed.containsKey(sequence);
+    }
+
+    /**
+     * Отметка использования допущенного билета
+     *
+     * @param expiresAtSeconds срок действия билета: до него номер нужно помнить, позже билет не пройдет проверку сам
+     * @return false — по билету уже пропущен запрос
+     */
+    boolean redeem(long sequence, long expiresAtSeconds) {
+        return redeemed.putIfAbsent(sequence, expiresAtSeconds) == null;
+    }
+
+    /**
+     * Удаление номеров билетов, срок которых истек
+     */
+    void pruneRedeemed(long nowSeconds) {
+        redeemed.values().removeIf(expiresAt -> expiresAt < nowSeconds);
+    }
+
+    /**
+     * Сколько клиентов впереди (0 — номер допущен)
+     */
+    long position(long sequence) {
+        return Math.max(0, sequence - admitted);
+    }
+
+    long waiting() {
+        return issued.get() - admitted;
+    }
+
+    /**
+     * Ориентировочное время ожидания позиции в секундах
+     */
+    long estimatedWaitSeconds(long position) {
+        return (long) Math.ceil(position / settings.getAdmitRatePerSecond());
+    }
+
+    /**
+     * Сдвиг границы допуска за время, прошедшее с прошлого вызова, не больше числа свободных мест
+     * (вызывается из одного потока)
+     */
+    void advance(long nowNanos) {
+        double elapsedSeconds = (nowNanos - lastAdvanceNanos) / 1_000_000_000d;
+        lastAdvanceNanos = nowNanos;
+        long target = issued.get();
+        int free = settings.getCapacity() - inFlight.get();
+        if (admitted >= target || free <= 0) {
+            admitCredit = 0;
+            return;
+        }
+        admitCredit += elapsedSeconds * settings.getAdmitRatePerSecond();
+        long step = (long) admitCredit;
+        if (step > free) {
+            // Излишек сверх свободных мест не копится
+            step = free;
+            admitCredit = step;
+        }
+        if (step > 0) {
+            admitCredit -= step;
+            admitted = Math.min(target, admitted + step);
+        }
+    }
+
+    /**
+     * Занять место среди одновременных запросов маршрута
+     *
+     * @return false — маршрут загружен до {@code capacity}
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= settings.getCapacity()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    boolean hasCapacity() {
+        return inFlight.get() < settings.getCapacity();
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
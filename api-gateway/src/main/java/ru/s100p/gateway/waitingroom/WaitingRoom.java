@@ -0,0 +1,142 @@
+package ru.s100p.gateway.waitingroom;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Виртуальная комната ожидания для маршрутов из {@code gateway.waiting-room.routes}.
+ *
+ * <p>Пока маршрут справляется ({@code capacity} одновременных запросов не достигнуто и очередь пуста),
+ * запросы проходят без билетов. Когда маршрут перегружен, новые клиенты получают подписанный билет с номером
+ * в очереди и опрашивают {@link WaitingRoomController} — статус считается из памяти, без обращений к сервисам.
+ * Номера допускаются по порядку со скоростью {@code admit-rate-per-second}, пока у маршрута есть свободные места.
+ * Допущенный клиент повторяет запрос с билетом: билет одноразовый и пропускает запрос, только если
+ * одновременных запросов меньше {@code capacity}, иначе клиент ждет с тем же билетом.</p>
+ *
+ * <p>Очередь хранится в памяти одного экземпляра gateway: при нескольких экземплярах у каждого своя очередь
+ * и своя доля скорости допуска, а билет действителен только на выдавшем его экземпляре.</p>
+ */
+@Component
+public class WaitingRoom {
+
+    /**
+     * Состояние билета для клиента
+     *
+     * @param ticket               билет, с которым нужно повторить запрос и опрашивать статус
+     * @param position             сколько клиентов впереди (0 — допущен)
+     * @param admitted             можно повторять запрос (номер допущен и у маршрута есть свободные места)
+     * @param estimatedWaitSeconds ориентировочное время до допуска
+     */
+    public record Status(String ticket, long position, boolean admitted, long estimatedWaitSeconds) {
+    }
+
+    /**
+     * Решение по запросу: пропустить (status == null, admitted == true), поставить в очередь
+     * или отказать без билета, если очередь заполнена (status == null, admitted == false)
+     */
+    public record Decision(boolean admitted, Status status) {
+    }
+
+    private final QueueTicketCodec codec;
+    private final long ticketTtlSeconds;
+    private final Map<String, RouteQueue> queues = new HashMap<>();
+    // Номера очереди начинаются заново после перезапуска: билеты прежнего запуска недействительны
+    private final long epoch = System.currentTimeMillis();
+
+    public WaitingRoom(WaitingRoomProperties properties, MeterRegistry meterRegistry) {
+        this.codec = new QueueTicketCodec(properties.getSecret(), properties.getTicketTtl());
+        this.ticketTtlSeconds = properties.getTicketTtl().toSeconds();
+        long now = System.nanoTime();
+        properties.getRoutes().forEach((routeId, settings) -> {
+            RouteQueue queue = new RouteQueue(settings, now);
+            queues.put(routeId, queue);
+            Gauge.builder("gateway.waiting-room.waiting", queue, RouteQueue::waiting)
+                    .description("Clients waiting in the route's admission queue")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        });
+    }
+
+    public boolean isManaged(String routeId) {
+        return queues.containsKey(routeId);
+    }
+
+    /**
+     * Решение по запросу к маршруту. Пропущенный запрос нужно завершить вызовом {@link #release}.
+     *
+     * @param ticketValue билет из запроса или null (использованный билет считается отсутствующим)
+     */
+    public Decision admit(String routeId, String clientKey, String ticketValue) {
+        RouteQueue queue = queues.get(routeId);
+        Optional<QueueTicket> ticket = codec.decode(ticketValue)
+                .filter(t -> t.epoch() == epoch && t.routeId().equals(routeId) && t.clientKey().equals(clientKey))
+                .filter(t -> !queue.isRedeemed(t.sequence()));
+        if (ticket.isPresent()) {
+            long sequence = ticket.get().sequence();
+            // Номер допущен, но маршрут снова загружен до capacity: билет не расходуется, клиент ждет с ним же
+            if (!queue.isAdmitted(sequence) || !queue.tryAcquire()) {
+                return new Decision(false, status(queue, ticketValue, sequence));
+            }
+            if (queue.redeem(sequence, ticket.get().issuedAt() + ticketTtlSeconds)) {
+                return new Decision(true, null);
+            }
+            // Параллельный запрос с тем же билетом успел его использовать
+            queue.release();
+        }
+        if (queue.waiting() == 0 && queue.tryAcquire()) {
+            return new Decision(true, null);
+        }
+        long sequence = queue.enqueue();
+        if (sequence < 0) {
+            return new Decision(false, null);
+        }
+        String issued = codec.encode(new QueueTicket(routeId, epoch, sequence, clientKey, System.currentTimeMillis() / 1000));
+        return new Decision(false, status(queue, issued, sequence));
+    }
+
+    public void release(String routeId) {
+        queues.get(routeId).release();
+    }
+
+    /**
+     * Состояние билета (пустой Optional — билет недействителен)
+     */
+    public Optional<Status> status(String ticketValue) {
+        return codec.decode(ticketValue)
+                .filter(ticket -> ticket.epoch() == epoch && queues.containsKey(ticket.routeId()))
+                .filter(ticket -> !queues.get(ticket.routeId()).isRedeemed(ticket.sequence()))
+                .map(ticket -> status(queues.get(ticket.routeId()), ticketValue, ticket.sequence()));
+    }
+
+    /**
+     * Ориентировочное время ожидания нового клиента маршрута (для Retry-After при заполненной очереди)
+     */
+    public long estimatedWaitSeconds(String routeId) {
+        RouteQueue queue = queues.get(routeId);
+        return queue.estimatedWaitSeconds(queue.waiting());
+    }
+
+    @Scheduled(fixedRate = 100)
+    public void advanceQueues() {
+        long now = System.nanoTime();
+        queues.values().forEach(queue -> queue.advance(now));
+    }
+
+    @Scheduled(fixedRate = 60_000)
+    public void pruneRedeemedTickets() {
+        long nowSeconds = System.currentTimeMillis() / 1000;
+        queues.values().forEach(queue -> queue.pruneRedeemed(nowSeconds));
+    }
+
+    private static Status status(RouteQueue queue, String ticketValue, long sequence) {
+        long position = queue.position(sequence);
+        return new Status(ticketValue, position, position == 0 && queue.hasCapacity(),
+                queue.estimatedWaitSeconds(position));
+    }
+}
@@ -0,0 +1,34 @@
+package ru.s100p.gateway.waitingroom;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.s100p.shared.constants.ErrorCodes;
+import ru.s100p.shared.dto.ApiResponse;
+
+/**
+ * Статус билета комнаты ожидания. Отвечает сам gateway из памяти, без обращений к сервисам,
+ * поэтому частые опросы клиентов в очереди не нагружают перегруженный маршрут.
+ */
+@RestController
+@RequiredArgsConstructor
+public class WaitingRoomController {
+
+    public static final String STATUS_PATH = "/api/v1/waiting-room/status";
+
+    private final WaitingRoom waitingRoom;
+
+    @GetMapping(STATUS_PATH)
+    public ResponseEntity<ApiResponse<WaitingRoom.Status>> status(@RequestParam("ticket") String ticket) {
+        return waitingRoom.status(ticket)
+                .map(status -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noStore())
+                        .body(ApiResponse.success(status)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(ApiResponse.error("Билет недействителен или истек", ErrorCodes.INVALID_TOKEN)));
+    }
+}
@@ -0,0 +1,110 @@
+package ru.s100p.gateway.waitingroom;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import ru.s100p.gateway.ratelimit.RateLimitGlobalFilter;
+import ru.s100p.shared.constants.ErrorCodes;
+import ru.s100p.shared.dto.ApiResponse;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Допуск запросов к маршрутам с комнатой ожидания ({@link WaitingRoom}).
+ *
+ * <p>Запрос без действующего билета при перегрузке маршрута получает 503 с {@code Retry-After} и телом
+ * {@link ApiResponse} с билетом и позицией в очереди; допущенный клиент повторяет запрос с заголовком
+ * {@value #TICKET_HEADER} (билет пропускает один запрос). При заполненной очереди билет не выдается.</p>
+ *
+ * <p>Фильтр выполняется после аутентификации (билет привязан к пользователю) и rate limiter,
+ * но до адаптивного лимита одновременных запросов.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class WaitingRoomGlobalFilter implements GlobalFilter, Ordered {
+
+    public static final String TICKET_HEADER = "X-Waiting-Room-Ticket";
+
+    // После RateLimitGlobalFilter (1000), до ConcurrencyLimitGlobalFilter (1100)
+    private static final int ORDER = 1050;
+    // Клиенту в очереди незачем опрашивать статус чаще и реже этих интервалов
+    private static final long MIN_POLL_SECONDS = 1;
+    private static final long MAX_POLL_SECONDS = 10;
+
+    private final WaitingRoomProperties properties;
+    private final WaitingRoom waitingRoom;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null || !waitingRoom.isManaged(route.getId())) {
+            return chain.filter(exchange);
+        }
+
+        String routeId = route.getId();
+        WaitingRoom.Decision decision = waitingRoom.admit(routeId,
+                RateLimitGlobalFilter.clientKey(exchange), exchange.getRequest().getHeaders().getFirst(TICKET_HEADER));
+        if (decision.admitted()) {
+            return chain.filter(exchange).doFinally(signal -> waitingRoom.release(routeId));
+        }
+
+        count(routeId, decision.status() != null ? "queued" : "rejected");
+        if (decision.status() == null) {
+            return respond(exchange, waitingRoom.estimatedWaitSeconds(routeId),
+                    ApiResponse.error("Очередь переполнена, повторите попытку позже", ErrorCodes.WAITING_ROOM_FULL));
+        }
+        ApiResponse<WaitingRoom.Status> body = ApiResponse.<WaitingRoom.Status>builder()
+                .success(false)
+                .message("Сервис перегружен, запрос поставлен в очередь")
+                .errorCode(ErrorCodes.WAITING_ROOM)
+                .data(decision.status())
+                .timestamp(LocalDateTime.now())
+                .build();
+        return respond(exchange, decision.status().estimatedWaitSeconds(), body);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private Mono<Void> respond(ServerWebExchange exchange, long waitSeconds, ApiResponse<?> body) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                Long.toString(Math.clamp(waitSeconds, MIN_POLL_SECONDS, MAX_POLL_SECONDS)));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setCacheControl("no-store");
+        try {
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(objectMapper.writeValueAsBytes(body))));
+        } catch (JsonProcessingException ex) {
+            return Mono.error(ex);
+        }
+    }
+
+    private void count(String routeId, String result) {
+        Counter.builder("gateway.waiting-room.requests")
+                .description("Requests held back by the waiting room (queued = ticket issued, rejected = queue full)")
+                .tag("route", routeId)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,36 @@
+package ru.s100p.gateway.waitingroom;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Настройки {@code gateway.waiting-room.*} из application.yml
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.waiting-room")
+public class WaitingRoomProperties {
+
+    private boolean enabled = true;
+    // Секрет подписи билетов очереди (не короче 32 байт)
+    private String secret;
+    // Билет действителен в течение этого времени от выдачи; после допуска он пропускает один запрос
+    private Duration ticketTtl = Duration.ofMinutes(30);
+    // Настройки очереди для каждого маршрута
+    private Map<String, Room> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class Room {
+        // Одновременных запросов к маршруту, после которых новые клиенты встают в очередь
+        private int capacity = 50;
+        // Устойчивая пропускная способность сервиса: сколько билетов допускается в секунду
+        private double admitRatePerSecond = 20;
+        // Больше билетов не выдается, клиент получает 503 без билета
+        private int maxQueueSize = 100_000;
+    }
+}
@@ -0,0 +1,121 @@
+package ru.s100p.gateway.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Арифметика лимита при свойствах по умолчанию: initial 20, min 5, max 500, smoothing 0.2,
+ * rtt-tolerance 1.5, long-window 600, backoff 0.9
+ */
+class GradientConcurrencyLimitTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void rejectsAboveLimitUntilPermitReleased() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(new ConcurrencyLimitProperties());
+
+        assertThat(acquireAll(limit)).isEqualTo(20);
+        assertThat(limit.tryAcquire()).isFalse();
+
+        limit.releaseIgnored();
+
+        assertThat(limit.limit()).isEqualTo(20);
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void growsBySqrtWhileLatencyIsStableUnderLoad() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(new ConcurrencyLimitProperties());
+        acquireAll(limit);
+
+        // gradient = 1: 20 * 0.8 + (20 + sqrt(20)) * 0.2 = 20.89
+        limit.release(RTT, false);
+        assertThat(limit.limit()).isEqualTo(20);
+
+        // 20.89 * 0.8 + (20.89 + sqrt(20.89)) * 0.2 = 21.81
+        limit.tryAcquire();
+        limit.release(RTT, false);
+        assertThat(limit.limit()).isEqualTo(21);
+
+        // 22.74
+        limit.tryAcquire();
+        limit.tryAcquire();
+        limit.release(RTT, false);
+        assertThat(limit.limit()).isEqualTo(22);
+    }
+
+    @Test
+    void shrinksWhenLatencyGrowsWithGradientFloorOfHalf() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(new ConcurrencyLimitProperties());
+        acquireAll(limit);
+        limit.release(RTT, false);
+        limit.tryAcquire();
+
+        // Задержка выросла в 10 раз: gradient = max(0.5, 1.5 * 10.15 / 100) = 0.5,
+        // 20.89 * 0.8 + (20.89 * 0.5 + sqrt(20.89)) * 0.2 = 19.72
+        limit.release(RTT * 10, false);
+
+        assertThat(limit.limit()).isEqualTo(19);
+    }
+
+    @Test
+    void doesNotGrowWhenLessThanHalfOfLimitIsUsed() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(new ConcurrencyLimitProperties());
+
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.release(RTT, false);
+        }
+
+        assertThat(limit.limit()).isEqualTo(20);
+    }
+
+    @Test
+    void backsOffMultiplicativelyOnDrops() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(new ConcurrencyLimitProperties());
+
+        limit.tryAcquire();
+        limit.release(RTT, true);
+        assertThat(limit.limit()).isEqualTo(18);
+
+        limit.tryAcquire();
+        limit.release(RTT, true);
+        assertThat(limit.limit()).isEqualTo(16); // 16.2
+
+        limit.tryAcquire();
+        limit.release(RTT, true);
+        assertThat(limit.limit()).isEqualTo(14); // 14.58
+    }
+
+    @Test
+    void staysWithinMinAndMaxLimit() {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setMaxLimit(22);
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(properties);
+
+        for (int i = 0; i < 50; i++) {
+            acquireAll(limit);
+            limit.release(RTT, false);
+        }
+        assertThat(limit.limit()).isEqualTo(22);
+
+        GradientConcurrencyLimit dropping = new GradientConcurrencyLimit(properties);
+        for (int i = 0; i < 50; i++) {
+            dropping.tryAcquire();
+            dropping.release(RTT, true);
+        }
+        assertThat(dropping.limit()).isEqualTo(5);
+    }
+
+    private static int acquireAll(GradientConcurrencyLimit limit) {
+        int acquired = 0;
+        while (limit.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+}
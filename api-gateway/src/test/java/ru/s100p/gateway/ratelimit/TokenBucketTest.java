@@ -0,0 +1,96 @@
+package ru.s100p.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Token bucket на 10 токенов в секунду с запасом 3: время передается явно, без ожидания
+ */
+class TokenBucketTest {
+
+    private static final long START = 1_000_000_000L;
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenReportsWaitForNextToken() {
+        TokenBucket bucket = new TokenBucket(10, 3, START);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryConsume(START)).isZero();
+        }
+
+        assertThat(bucket.tryConsume(START)).isCloseTo(100 * MS, within(1L));
+        assertThat(bucket.tryConsume(START + 40 * MS)).isCloseTo(60 * MS, within(1L));
+    }
+
+    @Test
+    void refillsLazilyWithElapsedTime() {
+        TokenBucket bucket = new TokenBucket(10, 3, START);
+        for (int i = 0; i < 3; i++) {
+            bucket.tryConsume(START);
+        }
+
+        assertThat(bucket.tryConsume(START + 101 * MS)).isZero();
+        assertThat(bucket.tryConsume(START + 101 * MS)).isPositive();
+    }
+
+    @Test
+    void doesNotAccumulateAboveBurstCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 3, START);
+        long later = START + TimeUnit.MINUTES.toNanos(5);
+
+        assertThat(bucket.isFull(later)).isTrue();
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryConsume(later)).isZero();
+        }
+        assertThat(bucket.tryConsume(later)).isPositive();
+        assertThat(bucket.isFull(later)).isFalse();
+    }
+
+    @Test
+    void ignoresTimestampsOlderThanLastUpdate() {
+        TokenBucket bucket = new TokenBucket(10, 1, START);
+        bucket.tryConsume(START + 500 * MS);
+
+        // Поток с более старым nanoTime не начисляет токены за "отрицательное" время
+        assertThat(bucket.tryConsume(START)).isPositive();
+        assertThat(bucket.tryConsume(START + 601 * MS)).isZero();
+    }
+
+    @Test
+    void concurrentConsumersNeverExceedAvailableTokens() throws Exception {
+        int threads = 8;
+        TokenBucket bucket = new TokenBucket(10, 100, START);
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1_000; i++) {
+                        if (bucket.tryConsume(START) == 0) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(allowed.get()).isEqualTo(100);
+    }
+}
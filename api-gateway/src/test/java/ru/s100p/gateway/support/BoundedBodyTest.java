@@ -0,0 +1,93 @@
+package ru.s100p.gateway.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Сборка тела: целиком в пределах лимита, потоком при превышении
+ */
+class BoundedBodyTest {
+
+    private final DefaultDataBufferFactory factory = DefaultDataBufferFactory.sharedInstance;
+
+    @Test
+    void passesWholeBodyWithinLimitAsBytes() {
+        AtomicReference<String> whole = new AtomicReference<>();
+        AtomicReference<String> overflow = new AtomicReference<>();
+
+        collect(body("abc", "def", "gh"), 8, whole, overflow);
+
+        assertThat(whole.get()).isEqualTo("abcdefgh");
+        assertThat(overflow.get()).isNull();
+    }
+
+    @Test
+    void streamsEntireBodyWhenLimitExceeded() {
+        AtomicReference<String> whole = new AtomicReference<>();
+        AtomicReference<String> overflow = new AtomicReference<>();
+
+        collect(body("abc", "def", "ghi", "jkl"), 8, whole, overflow);
+
+        assertThat(whole.get()).isNull();
+        assertThat(overflow.get()).isEqualTo("abcdefghijkl");
+    }
+
+    @Test
+    void streamsWhenSingleBufferExceedsLimit() {
+        AtomicReference<String> whole = new AtomicReference<>();
+        AtomicReference<String> overflow = new AtomicReference<>();
+
+        collect(body("abcdefghij", "k"), 4, whole, overflow);
+
+        assertThat(whole.get()).isNull();
+        assertThat(overflow.get()).isEqualTo("abcdefghijk");
+    }
+
+    @Test
+    void passesEmptyBodyAsEmptyArray() {
+        AtomicReference<String> whole = new AtomicReference<>();
+        AtomicReference<String> overflow = new AtomicReference<>();
+
+        collect(Flux.empty(), 8, whole, overflow);
+
+        assertThat(whole.get()).isEmpty();
+        assertThat(overflow.get()).isNull();
+    }
+
+    @Test
+    void propagatesUpstreamError() {
+        Flux<DataBuffer> failing = Flux.concat(body("abc"), Flux.error(new IllegalStateException("upstream reset")));
+
+        assertThatThrownBy(() -> BoundedBody.collect(failing, 8, bytes -> Mono.empty(), rest -> rest.then()).block())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("upstream reset");
+    }
+
+    private void collect(Flux<DataBuffer> body, long maxBytes,
+                         AtomicReference<String> whole, AtomicReference<String> overflow) {
+        BoundedBody.collect(body, maxBytes,
+                        bytes -> Mono.fromRunnable(() -> whole.set(new String(bytes, StandardCharsets.UTF_8))),
+                        rest -> DataBufferUtils.join(rest)
+                                .doOnNext(joined -> {
+                                    overflow.set(joined.toString(StandardCharsets.UTF_8));
+                                    DataBufferUtils.release(joined);
+                                })
+                                .then())
+                .block();
+    }
+
+    private Flux<DataBuffer> body(String... chunks) {
+        return Flux.fromArray(chunks)
+                .map(chunk -> factory.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,180 @@
+package ru.s100p.gateway.support;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Кольцевой буфер: порядок, переход через границу массива, заполнение и конкурентные производители
+ */
+class MpscRingBufferTest {
+
+    @Test
+    void keepsFifoOrderAcrossWraparound() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(8);
+        int next = 0;
+        int expected = 0;
+
+        // 5 записей за круг при емкости 8: позиции в массиве сдвигаются и переходят через границу
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 5; i++) {
+                assertThat(buffer.offer(next++)).isTrue();
+            }
+            for (int i = 0; i < 5; i++) {
+                assertThat(buffer.poll()).isEqualTo(expected++);
+            }
+            assertThat(buffer.poll()).isNull();
+        }
+    }
+
+    @Test
+    void rejectsOfferWhenFullUntilConsumerFreesSlot() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(8);
+        for (int i = 0; i < 8; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+
+        assertThat(buffer.offer(8)).isFalse();
+
+        assertThat(buffer.poll()).isEqualTo(0);
+        assertThat(buffer.offer(8)).isTrue();
+        assertThat(buffer.offer(9)).isFalse();
+        for (int i = 1; i <= 8; i++) {
+            assertThat(buffer.poll()).isEqualTo(i);
+        }
+        assertThat(buffer.poll()).isNull();
+    }
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(5);
+        int accepted = 0;
+        while (buffer.offer(accepted)) {
+            accepted++;
+        }
+
+        assertThat(accepted).isEqualTo(8);
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void deliversEveryEntryFromConcurrentProducersInPerProducerOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 200_000;
+        MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                executor.submit(() -> {
+                    start.await();
+                    for (long i = 0; i < perProducer; i++) {
+                        long[] entry = {producer, i};
+                        // Полный буфер не блокирует производителя: повторяем, пока потребитель не освободит место
+                        while (!buffer.offer(entry)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+
+            long[] lastSeen = new long[producers];
+            Arrays.fill(lastSeen, -1);
+            long received = 0;
+            while (received < (long) producers * perProducer) {
+                long[] entry = buffer.poll();
+                if (entry == null) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                int producer = (int) entry[0];
+                assertThat(entry[1]).isEqualTo(lastSeen[producer] + 1);
+                lastSeen[producer] = entry[1];
+                received++;
+            }
+
+            assertThat(lastSeen).containsOnly(perProducer - 1);
+            assertThat(buffer.poll()).isNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void stressSmallBufferUnderContentionNeitherLosesNorDuplicatesAcceptedEntries() throws Exception {
+        int producers = 8;
+        int perProducer = 500_000;
+        MpscRingBuffer<Long> buffer = new MpscRingBuffer<>(4);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                long base = (long) p * perProducer;
+                // Как AccessLog: при заполненном буфере запись отбрасывается, производитель считает принятые
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long accepted = 0;
+                    long acceptedSum = 0;
+                    for (long i = 0; i < perProducer; i++) {
+                        if (buffer.offer(base + i)) {
+                            accepted++;
+                            acceptedSum += base + i;
+                        }
+                    }
+                    return new long[]{accepted, acceptedSum};
+                }));
+            }
+
+            start.countDown();
+
+            boolean[] seen = new boolean[producers * perProducer];
+            long consumed = 0;
+            long consumedSum = 0;
+            boolean producing = true;
+            while (producing) {
+                Long entry = buffer.poll();
+                if (entry == null) {
+                    producing = results.stream().anyMatch(result -> !result.isDone());
+                    continue;
+                }
+                assertThat(seen[entry.intValue()]).as("duplicate %d", entry).isFalse();
+                seen[entry.intValue()] = true;
+                consumed++;
+                consumedSum += entry;
+            }
+            for (Long entry = buffer.poll(); entry != null; entry = buffer.poll()) {
+                assertThat(seen[entry.intValue()]).as("duplicate %d", entry).isFalse();
+                seen[entry.intValue()] = true;
+                consumed++;
+                consumedSum += entry;
+            }
+
+            long accepted = 0;
+            long acceptedSum = 0;
+            for (Future<long[]> result : results) {
+                accepted += result.get()[0];
+                acceptedSum += result.get()[1];
+            }
+            assertThat(consumed).isEqualTo(accepted);
+            assertThat(consumedSum).isEqualTo(acceptedSum);
+            assertThat(accepted).isPositive();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.s100p.gateway.waitingroom;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Подпись и срок действия билетов очереди
+ */
+class QueueTicketCodecTest {
+
+    private static final String SECRET = "test-waiting-room-secret-0123456789abcdef";
+
+    private final QueueTicketCodec codec = new QueueTicketCodec(SECRET, Duration.ofMinutes(30));
+
+    @Test
+    void decodesWhatItEncodes() {
+        QueueTicket ticket = new QueueTicket("payment-service", 1_700_000_000_000L, 42, "user:7.a", now());
+
+        assertThat(codec.decode(codec.encode(ticket))).contains(ticket);
+    }
+
+    @Test
+    void rejectsTamperedTicket() {
+        String encoded = codec.encode(new QueueTicket("payment-service", 1L, 42, "user:7", now()));
+        // Номер в очереди — третье поле payload
+        String[] parts = encoded.split("\\.");
+        parts[2] = "1";
+
+        assertThat(codec.decode(String.join(".", parts))).isEmpty();
+    }
+
+    @Test
+    void rejectsTicketSignedWithAnotherSecret() {
+        QueueTicketCodec other = new QueueTicketCodec(SECRET.replace('0', 'x'), Duration.ofMinutes(30));
+        String encoded = other.encode(new QueueTicket("payment-service", 1L, 42, "user:7", now()));
+
+        assertThat(codec.decode(encoded)).isEmpty();
+    }
+
+    @Test
+    void rejectsExpiredTicket() {
+        String encoded = codec.encode(new QueueTicket("payment-service", 1L, 42, "user:7",
+                now() - Duration.ofMinutes(31).toSeconds()));
+
+        assertThat(codec.decode(encoded)).isEmpty();
+    }
+
+    @Test
+    void rejectsMalformedValues() {
+        assertThat(codec.decode(null)).isEmpty();
+        assertThat(codec.decode("")).isEmpty();
+        assertThat(codec.decode("not-a-ticket")).isEmpty();
+        assertThat(codec.decode("a.b.c.d.e.!!!")).isEmpty();
+    }
+
+    @Test
+    void requiresLongSecret() {
+        assertThatThrownBy(() -> new QueueTicketCodec("short", Duration.ofMinutes(30)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -0,0 +1,117 @@
+package ru.s100p.gateway.waitingroom;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Очередь маршрута на 2 одновременных запроса с допуском 10 номеров в секунду и не больше 5 ожидающих
+ */
+class RouteQueueTest {
+
+    private static final long START = 1_000_000_000L;
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void issuesSequentialNumbersUntilQueueIsFull() {
+        RouteQueue queue = queue();
+
+        for (long expected = 1; expected <= 5; expected++) {
+            assertThat(queue.enqueue()).isEqualTo(expected);
+        }
+
+        assertThat(queue.enqueue()).isEqualTo(-1);
+        assertThat(queue.waiting()).isEqualTo(5);
+        assertThat(queue.position(5)).isEqualTo(5);
+    }
+
+    @Test
+    void admitsInOrderAtConfiguredRate() {
+        RouteQueue queue = queue();
+        for (int i = 0; i < 5; i++) {
+            queue.enqueue();
+        }
+
+        // 0.1 с при 10 в секунду — один номер
+        queue.advance(START + SECOND / 10);
+
+        assertThat(queue.isAdmitted(1)).isTrue();
+        assertThat(queue.isAdmitted(2)).isFalse();
+        assertThat(queue.position(3)).isEqualTo(2);
+        assertThat(queue.estimatedWaitSeconds(queue.position(5))).isEqualTo(1);
+    }
+
+    @Test
+    void holdsBoundaryWhileRouteIsAtCapacity() {
+        RouteQueue queue = queue();
+        assertThat(queue.tryAcquire()).isTrue();
+        assertThat(queue.tryAcquire()).isTrue();
+        assertThat(queue.tryAcquire()).isFalse();
+        for (int i = 0; i < 5; i++) {
+            queue.enqueue();
+        }
+
+        queue.advance(START + SECOND);
+        assertThat(queue.isAdmitted(1)).isFalse();
+        assertThat(queue.hasCapacity()).isFalse();
+
+        // Секунда ожидания при полной загрузке не копится: освободилось одно место — допускается один номер
+        queue.release();
+        queue.advance(START + SECOND + SECOND / 10);
+        assertThat(queue.isAdmitted(1)).isTrue();
+        assertThat(queue.isAdmitted(2)).isFalse();
+    }
+
+    @Test
+    void admitsNoMoreThanFreeSlotsPerStep() {
+        RouteQueue queue = queue();
+        for (int i = 0; i < 5; i++) {
+            queue.enqueue();
+        }
+
+        // За секунду набирается 10 допусков, но свободных мест только 2
+        queue.advance(START + SECOND);
+        assertThat(queue.isAdmitted(2)).isTrue();
+        assertThat(queue.isAdmitted(3)).isFalse();
+
+        queue.advance(START + SECOND + SECOND / 10);
+        assertThat(queue.isAdmitted(3)).isTrue();
+    }
+
+    @Test
+    void doesNotBankAdmissionsWhileQueueIsEmpty() {
+        RouteQueue queue = queue();
+        queue.advance(START + 10 * SECOND);
+
+        queue.enqueue();
+        queue.enqueue();
+        queue.advance(START + 10 * SECOND + 1);
+
+        assertThat(queue.isAdmitted(1)).isFalse();
+    }
+
+    @Test
+    void ticketCanBeRedeemedOnce() {
+        RouteQueue queue = queue();
+        long sequence = queue.enqueue();
+
+        assertThat(queue.redeem(sequence, 100)).isTrue();
+        assertThat(queue.isRedeemed(sequence)).isTrue();
+        assertThat(queue.redeem(sequence, 100)).isFalse();
+
+        queue.pruneRedeemed(100);
+        assertThat(queue.isRedeemed(sequence)).isTrue();
+        queue.pruneRedeemed(101);
+        assertThat(queue.isRedeemed(sequence)).isFalse();
+    }
+
+    private static RouteQueue queue() {
+        WaitingRoomProperties.Room settings = new WaitingRoomProperties.Room();
+        settings.setCapacity(2);
+        settings.setAdmitRatePerSecond(10);
+        settings.setMaxQueueSize(5);
+        return new RouteQueue(settings, START);
+    }
+}
@@ -20,6 +20,9 @@ public final class ApiConstants {
     public static final String AUTHORIZATION_HEADER = "Authorization";
     public static final String BEARER_PREFIX = "Bearer ";
     public static final String CONTENT_TYPE_JSON = "application/json";
+
+    // Подписанный заголовок с данными пользователя, который api-gateway передает сервисам после проверки JWT
+    public static final String IDENTITY_HEADER = "X-User-Identity";
     
     // Pagination
     public static final int DEFAULT_PAGE_SIZE = 20;
@@ -23,4 +23,11 @@ public final class ErrorCodes {
     public static final String PAYMENT_FAILED = "PAYMENT_FAILED";
     public static final String INSUFFICIENT_FUNDS = "INSUFFICIENT_FUNDS";
     public static final String PAYMENT_ALREADY_PROCESSED = "PAYMENT_ALREADY_PROCESSED";
+
+    // Gateway admission control
+    public static final String WAITING_ROOM = "WAITING_ROOM";
+    public static final String WAITING_ROOM_FULL = "WAITING_ROOM_FULL";
+
+    // Перегрузка сервиса: запрос отклонен сразу, клиенту следует повторить позже
+    public static final String SERVICE_OVERLOADED = "SERVICE_OVERLOADED";
 }
\ No newline at end of file
@@ -5,6 +5,8 @@ public final class KafkaEventTypeNames {
 
     public static final String USER_REGISTERED = "USER_REGISTERED";
     public static final String USER_PROFILE_UPDATED = "USER_PROFILE_UPDATED";
+    public static final String USER_CACHE_INVALIDATED = "USER_CACHE_INVALIDATED";
+    public static final String TOKEN_REVOKED = "TOKEN_REVOKED";
     public static final String COURSE_CREATED = "COURSE_CREATED";
     public static final String COURSE_UPDATED = "COURSE_UPDATED";
     public static final String ENROLLMENT_CREATED = "ENROLLMENT_CREATED";
@@ -12,4 +14,5 @@ public final class KafkaEventTypeNames {
     public static final String PAYMENT_PROCESSED = "PAYMENT_PROCESSED";
     public static final String PAYMENT_FAILED = "PAYMENT_FAILED";
     public static final String NOTIFICATION_REQUESTED = "NOTIFICATION_REQUESTED";
+    public static final String USER_ACTIVITY_BATCH = "USER_ACTIVITY_BATCH";
 }
@@ -4,6 +4,7 @@ public class KafkaServiceNames {
     private KafkaServiceNames() {
     }
 
+    public static final String API_GATEWAY = "api-gateway";
     public static final String USER_SERVICE = "user-service";
     public static final String COURSE_SERVICE = "course-service";
     public static final String PAYMENT_SERVICE = "payment-service";
@@ -9,4 +9,7 @@ public final class KafkaTopicNames {
     public static final String COURSE_UPDATED_TOPIC = "course_updated_topic";
     public static final String PAYMENT_PROCESSED_TOPIC = "payment_processed_topic";
     public static final String NOTIFICATION_REQUESTED_TOPIC = "notification_requested_topic";
+    public static final String USER_CACHE_INVALIDATION_TOPIC = "user_cache_invalidation_topic";
+    public static final String TOKEN_REVOCATION_TOPIC = "token_revocation_topic";
+    public static final String USER_ACTIVITY_TOPIC = "user_activity_topic";
 }
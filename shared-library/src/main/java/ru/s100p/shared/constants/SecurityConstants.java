@@ -8,6 +8,12 @@ public final class SecurityConstants {
     public static final String JWT_SECRET_KEY = "${jwt.secret:defaultSecretKey}";
     public static final long JWT_EXPIRATION_TIME = 86400000; // 24 hours
     public static final long REFRESH_TOKEN_EXPIRATION_TIME = 604800000; // 7 days
+
+    // JWT claims (общие для user-service, который выпускает токены, и api-gateway, который их проверяет)
+    public static final String CLAIM_USERNAME = "username";
+    public static final String CLAIM_AUTHORITIES = "authorities";
+    public static final String CLAIM_USER_ID = "userId";
+    public static final String CLAIM_SECURITY_VERSION = "secVersion";
     
     // Roles
     public static final String ROLE_ADMIN = "ADMIN";
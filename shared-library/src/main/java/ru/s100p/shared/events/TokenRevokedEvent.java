@@ -0,0 +1,24 @@
+package ru.s100p.shared.events;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.SuperBuilder;
+import ru.s100p.shared.constants.KafkaEventTypeNames;
+import ru.s100p.shared.constants.KafkaServiceNames;
+
+import java.time.Instant;
+
+// Отзыв access токена. Ключ сообщения — jti, топик компактируется, после истечения токена публикуется tombstone
+@Data
+@SuperBuilder
+@EqualsAndHashCode(callSuper = true)
+public class TokenRevokedEvent extends BaseEvent {
+    private String tokenId;
+    private Instant expiresAt;
+
+    public TokenRevokedEvent() {
+        super();
+        setEventType(KafkaEventTypeNames.TOKEN_REVOKED);
+        setSourceService(KafkaServiceNames.USER_SERVICE);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.s100p.shared.events;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+import ru.s100p.shared.constants.KafkaEventTypeNames;
+import ru.s100p.shared.constants.KafkaServiceNames;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Пачка клиентских событий активности (beacon) от api-gateway для таблицы user_activity_logs в analytics-service.
+// Одна запись Kafka несет много событий: телеметрия — самый массовый поток записи, и накладные расходы
+// на запись (заголовки, JSON обертка, подтверждение брокера) делятся на всю пачку
+@Data
+@SuperBuilder
+@EqualsAndHashCode(callSuper = true)
+public class UserActivityBatchEvent extends BaseEvent {
+    private List<Activity> activities;
+
+    public UserActivityBatchEvent() {
+        super();
+        setEventType(KafkaEventTypeNames.USER_ACTIVITY_BATCH);
+        setSourceService(KafkaServiceNames.API_GATEWAY);
+    }
+
+    // Одно событие; поля соответствуют колонкам user_activity_logs
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Activity {
+        private Long userId;
+        private String sessionId;
+        private String action; // COURSE_VIEW, LESSON_START, ...
+        private String resourceType; // COURSE, LESSON, PAYMENT
+        private Long resourceId;
+        private String ipAddress;
+        private String userAgent;
+        private String referer;
+        private Map<String, Object> metadata;
+        private Integer duration; // секунды
+        private LocalDateTime occurredAt; // время события на клиенте (если передано), иначе время приема
+    }
+}
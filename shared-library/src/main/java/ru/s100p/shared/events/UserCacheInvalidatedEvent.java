@@ -0,0 +1,21 @@
+package ru.s100p.shared.events;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.SuperBuilder;
+import ru.s100p.shared.constants.KafkaEventTypeNames;
+import ru.s100p.shared.constants.KafkaServiceNames;
+
+// Сигнал репликам user-service сбросить локальные кеши пользователя (роли, пароль, активность изменились)
+@Data
+@SuperBuilder
+@EqualsAndHashCode(callSuper = true)
+public class UserCacheInvalidatedEvent extends BaseEvent {
+    private Long userId;
+
+    public UserCacheInvalidatedEvent() {
+        super();
+        setEventType(KafkaEventTypeNames.USER_CACHE_INVALIDATED);
+        setSourceService(KafkaServiceNames.USER_SERVICE);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.s100p.shared.security;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Optional;
+
+// HmacSigner.java - подпись строки HMAC-SHA256 в формате <payload>.<b64url(hmac)>
+// Общая основа для подписанных заголовков и билетов: разбор payload остается за вызывающим кодеком
+public final class HmacSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    // Mac не потокобезопасен, а создание экземпляра относительно дорогое
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * @param secret  общий секрет, не короче 32 байт в UTF-8
+     * @param purpose что подписывается (для сообщения об ошибке), например "заголовка X-User-Identity"
+     */
+    public HmacSigner(String secret, String purpose) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("Секрет подписи " + purpose + " должен быть не короче "
+                    + MIN_SECRET_BYTES + " байт");
+        }
+        this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * @return payload с добавленной через точку подписью
+     */
+    public String sign(String payload) {
+        return payload + "." + ENCODER.encodeToString(hmac(payload));
+    }
+
+    /**
+     * Проверка подписи в постоянное время
+     *
+     * @return payload без подписи или пустой Optional, если строка повреждена или подделана
+     */
+    public Optional<String> verify(String signed) {
+        if (signed == null) {
+            return Optional.empty();
+        }
+        int signatureStart = signed.lastIndexOf('.');
+        if (signatureStart < 0) {
+            return Optional.empty();
+        }
+        String payload = signed.substring(0, signatureStart);
+        try {
+            byte[] signature = DECODER.decode(signed.substring(signatureStart + 1));
+            return MessageDigest.isEqual(hmac(payload), signature) ? Optional.of(payload) : Optional.empty();
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] hmac(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("HmacSHA256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ru.s100p.shared.security;
+
+import java.util.List;
+
+/**
+ * Данные пользователя, которые api-gateway после проверки JWT передает сервисам в подписанном заголовке
+ * {@code X-User-Identity} (см. {@link IdentityHeaderCodec}).
+ *
+ * @param userId           ID пользователя
+ * @param username         имя пользователя (subject токена)
+ * @param authorities      роли и права из токена
+ * @param securityVersion  версия безопасности пользователя из токена (может отсутствовать)
+ * @param tokenExpiresAt   срок действия исходного JWT, epoch seconds
+ * @param issuedAt         момент подписи заголовка gateway, epoch seconds
+ */
+public record IdentityAssertion(
+        Long userId,
+        String username,
+        List<String> authorities,
+        Long securityVersion,
+        long tokenExpiresAt,
+        long issuedAt
+) {
+}
@@ -0,0 +1,79 @@
+package ru.s100p.shared.security;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+// IdentityHeaderCodec.java - компактный заголовок с данными пользователя, подписанный HMAC-SHA256.
+// Формат: v1.<userId>.<secVersion>.<tokenExp>.<issuedAt>.<b64url(username)>.<b64url(authorities через запятую)>.<b64url(hmac)>
+// Срок жизни заголовка короткий (max-age от issuedAt), чтобы перехваченный заголовок нельзя было долго переиспользовать
+public final class IdentityHeaderCodec {
+
+    private static final String VERSION = "v1";
+    private static final long CLOCK_SKEW_SECONDS = 5;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final HmacSigner signer;
+    private final long maxAgeSeconds;
+
+    public IdentityHeaderCodec(String secret, Duration maxAge) {
+        this.signer = new HmacSigner(secret, "заголовка X-User-Identity");
+        this.maxAgeSeconds = maxAge.toSeconds();
+    }
+
+    public String encode(IdentityAssertion assertion) {
+        String payload = String.join(".",
+                VERSION,
+                String.valueOf(assertion.userId()),
+                String.valueOf(assertion.securityVersion()),
+                Long.toString(assertion.tokenExpiresAt()),
+                Long.toString(assertion.issuedAt()),
+                ENCODER.encodeToString(assertion.username().getBytes(StandardCharsets.UTF_8)),
+                ENCODER.encodeToString(String.join(",", assertion.authorities()).getBytes(StandardCharsets.UTF_8)));
+        return signer.sign(payload);
+    }
+
+    /**
+     * Проверка подписи и сроков заголовка
+     *
+     * @return данные пользователя или пустой Optional, если заголовок поврежден, подделан или устарел
+     */
+    public Optional<IdentityAssertion> decode(String header) {
+        Optional<String> verified = signer.verify(header);
+        if (verified.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            String payload = verified.get();
+            String[] parts = payload.split("\\.", -1);
+            if (parts.length != 7 || !VERSION.equals(parts[0])) {
+                return Optional.empty();
+            }
+            long tokenExpiresAt = Long.parseLong(parts[3]);
+            long issuedAt = Long.parseLong(parts[4]);
+            long now = System.currentTimeMillis() / 1000;
+            if (now >= tokenExpiresAt || now > issuedAt + maxAgeSeconds || issuedAt > now + CLOCK_SKEW_SECONDS) {
+                return Optional.empty();
+            }
+
+            String authorities = new String(DECODER.decode(parts[6]), StandardCharsets.UTF_8);
+            return Optional.of(new IdentityAssertion(
+                    parseNullableLong(parts[1]),
+                    new String(DECODER.decode(parts[5]), StandardCharsets.UTF_8),
+                    authorities.isEmpty() ? List.of() : Arrays.asList(authorities.split(",")),
+                    parseNullableLong(parts[2]),
+                    tokenExpiresAt,
+                    issuedAt));
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private static Long parseNullableLong(String value) {
+        return "null".equals(value) ? null : Long.valueOf(value);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.s100p.shared.security;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+// InternalNetworks.java - проверка принадлежности адреса списку внутренних сетей (security.internal-ips)
+// Элементы списка: отдельный адрес (127.0.0.1) или подсеть в нотации CIDR (10.0.0.0/8), IPv4 или IPv6
+public final class InternalNetworks {
+
+    private final List<Network> networks;
+
+    private record Network(byte[] address, int prefixLength) {
+
+        boolean contains(byte[] candidate) {
+            if (candidate.length != address.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (candidate[i] != address[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+            return (candidate[fullBytes] & mask) == (address[fullBytes] & mask);
+        }
+    }
+
+    public InternalNetworks(List<String> cidrs) {
+        this.networks = cidrs.stream().map(String::trim).filter(s -> !s.isEmpty()).map(InternalNetworks::parse).toList();
+    }
+
+    public boolean contains(String address) {
+        if (address == null || address.isEmpty()) {
+            return false;
+        }
+        try {
+            // Адрес соединения всегда числовой, поэтому DNS запроса здесь не происходит
+            byte[] candidate = InetAddress.getByName(address).getAddress();
+            return networks.stream().anyMatch(network -> network.contains(candidate));
+        } catch (UnknownHostException ex) {
+            return false;
+        }
+    }
+
+    private static Network parse(String cidr) {
+        int slash = cidr.indexOf('/');
+        String host = slash >= 0 ? cidr.substring(0, slash) : cidr;
+        try {
+            byte[] address = InetAddress.getByName(host).getAddress();
+            int prefixLength = slash >= 0 ? Integer.parseInt(cidr.substring(slash + 1)) : address.length * 8;
+            if (prefixLength < 0 || prefixLength > address.length * 8) {
+                throw new IllegalArgumentException("Некорректная длина префикса: " + cidr);
+            }
+            return new Network(address, prefixLength);
+        } catch (UnknownHostException ex) {
+            throw new IllegalArgumentException("Некорректный адрес сети: " + cidr, ex);
+        }
+    }
+}
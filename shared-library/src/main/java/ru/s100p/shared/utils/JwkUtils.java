@@ -0,0 +1,50 @@
+package ru.s100p.shared.utils;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// JwkUtils.java - преобразование RSA ключей в JWK (RFC 7517) и обратно для /.well-known/jwks.json
+public final class JwkUtils {
+
+    public static final String JWKS_PATH = "/.well-known/jwks.json";
+    public static final String ALGORITHM_RS256 = "RS256";
+
+    private JwkUtils() {}
+
+    public static Map<String, Object> toJwk(String kid, RSAPublicKey publicKey) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "RSA");
+        jwk.put("use", "sig");
+        jwk.put("alg", ALGORITHM_RS256);
+        jwk.put("kid", kid);
+        jwk.put("n", encodeUnsigned(publicKey.getModulus()));
+        jwk.put("e", encodeUnsigned(publicKey.getPublicExponent()));
+        return jwk;
+    }
+
+    public static RSAPublicKey fromJwk(Map<String, Object> jwk) throws GeneralSecurityException {
+        if (!"RSA".equals(jwk.get("kty"))) {
+            throw new GeneralSecurityException("Неподдерживаемый тип ключа: " + jwk.get("kty"));
+        }
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        BigInteger modulus = new BigInteger(1, decoder.decode((String) jwk.get("n")));
+        BigInteger exponent = new BigInteger(1, decoder.decode((String) jwk.get("e")));
+        return (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(modulus, exponent));
+    }
+
+    // Base64url без знакового нулевого байта, как требует RFC 7518
+    private static String encodeUnsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,94 @@
+package ru.s100p.shared.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Подпись и сроки заголовка X-User-Identity
+ */
+class IdentityHeaderCodecTest {
+
+    private static final String SECRET = "test-identity-secret-0123456789abcdef";
+
+    private final IdentityHeaderCodec codec = new IdentityHeaderCodec(SECRET, Duration.ofSeconds(30));
+
+    @Test
+    void decodesWhatItEncodes() {
+        IdentityAssertion assertion = new IdentityAssertion(7L, "ivan.petrov@example.ru",
+                List.of("ROLE_STUDENT", "course:read"), 3L, now() + 900, now());
+
+        assertThat(codec.decode(codec.encode(assertion))).contains(assertion);
+    }
+
+    @Test
+    void keepsMissingIdsAndEmptyAuthorities() {
+        IdentityAssertion assertion = new IdentityAssertion(null, "service", List.of(), null, now() + 900, now());
+
+        assertThat(codec.decode(codec.encode(assertion))).contains(assertion);
+    }
+
+    @Test
+    void rejectsTamperedHeader() {
+        String header = codec.encode(new IdentityAssertion(7L, "user", List.of("ROLE_STUDENT"), 3L,
+                now() + 900, now()));
+        // ID пользователя — второе поле payload
+        String[] parts = header.split("\\.");
+        parts[1] = "1";
+
+        assertThat(codec.decode(String.join(".", parts))).isEmpty();
+    }
+
+    @Test
+    void rejectsHeaderSignedWithAnotherSecret() {
+        IdentityHeaderCodec other = new IdentityHeaderCodec(SECRET.replace('0', 'x'), Duration.ofSeconds(30));
+        String header = other.encode(new IdentityAssertion(7L, "user", List.of(), 3L, now() + 900, now()));
+
+        assertThat(codec.decode(header)).isEmpty();
+    }
+
+    @Test
+    void rejectsHeaderOlderThanMaxAge() {
+        String header = codec.encode(new IdentityAssertion(7L, "user", List.of(), 3L, now() + 900, now() - 31));
+
+        assertThat(codec.decode(header)).isEmpty();
+    }
+
+    @Test
+    void rejectsHeaderForExpiredToken() {
+        String header = codec.encode(new IdentityAssertion(7L, "user", List.of(), 3L, now(), now()));
+
+        assertThat(codec.decode(header)).isEmpty();
+    }
+
+    @Test
+    void toleratesSmallClockSkewOnly() {
+        String skewed = codec.encode(new IdentityAssertion(7L, "user", List.of(), 3L, now() + 900, now() + 3));
+        String future = codec.encode(new IdentityAssertion(7L, "user", List.of(), 3L, now() + 900, now() + 60));
+
+        assertThat(codec.decode(skewed)).isPresent();
+        assertThat(codec.decode(future)).isEmpty();
+    }
+
+    @Test
+    void rejectsMalformedValues() {
+        assertThat(codec.decode(null)).isEmpty();
+        assertThat(codec.decode("")).isEmpty();
+        assertThat(codec.decode("v1.not-signed")).isEmpty();
+        assertThat(codec.decode(new HmacSigner(SECRET, "теста").sign("v2.1.1.1.1.a.b"))).isEmpty();
+    }
+
+    @Test
+    void requiresLongSecret() {
+        assertThatThrownBy(() -> new IdentityHeaderCodec("short", Duration.ofSeconds(30)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
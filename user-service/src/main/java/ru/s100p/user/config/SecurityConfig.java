@@ -13,16 +13,20 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import ru.s100p.shared.utils.JwkUtils;
+import ru.s100p.user.security.BoundedPasswordEncoder;
 import ru.s100p.user.security.CustomAccessDeniedHandler;
+import ru.s100p.user.security.InternalIdentityFilter;
 import ru.s100p.user.security.JwtAuthenticationEntryPoint;
 import ru.s100p.user.security.JwtAuthenticationFilter;
+import ru.s100p.user.security.PasswordHashCalibrator;
+import ru.s100p.user.security.PasswordHashingExecutor;
 
 import java.util.Arrays;
 import java.util.List;
@@ -40,6 +44,7 @@ public class SecurityConfig {
 
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint; // Точка входа для обработки ошибок аутентификации JWT
     private final JwtAuthenticationFilter jwtAuthenticationFilter; // Фильтр для аутентификации с использованием JWT
+    private final InternalIdentityFilter internalIdentityFilter; // Фильтр для аутентификации по подписанному заголовку gateway
     private final UserDetailsService userDetailsService; // Сервис для загрузки пользовательских данных
     private final CustomAccessDeniedHandler accessDeniedHandler;
 
@@ -52,6 +57,7 @@ public class SecurityConfig {
             "/api/v1/auth/reset-password",
             "/api/v1/auth/verify-email",
             "/actuator/health",
+            JwkUtils.JWKS_PATH,
             "/v3/api-docs/**",
             "/swagger-ui/**",
             "/swagger-ui.html",
@@ -92,7 +98,9 @@ public class SecurityConfig {
                 // Устанавливает провайдер аутентификации. В современных версиях эта строка уже не нужна в конфиге, так как это делается автоматически. Эту строку можно удалить.
                 //.authenticationProvider(authenticationProvider())
                 // Добавляет JWT-фильтр перед стандартным фильтром аутентификации по имени пользователя и паролю
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // Подписанный заголовок от gateway проверяется раньше JWT: при успехе JWT повторно не разбирается
+                .addFilterBefore(internalIdentityFilter, JwtAuthenticationFilter.class);
 
         // Собирает и возвращает конфигурацию HttpSecurity
         return http.build();
@@ -100,9 +108,10 @@ public class SecurityConfig {
 
     // Определяет бин для кодирования паролей
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        // Использует BCrypt с силой хеширования 12
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(PasswordHashCalibrator passwordHashCalibrator,
+                                           PasswordHashingExecutor passwordHashingExecutor) {
+        // Алгоритм и стоимость подбираются при старте под железо узла; хеширование выполняется в ограниченном пуле, а не в потоках Tomcat
+        return new BoundedPasswordEncoder(passwordHashCalibrator.createEncoder(), passwordHashingExecutor);
     }
 
     /* Этот метод настраивает основной механизм для проверки подлинности (аутентификации) пользователей. Кратко: Этот бин связывает логику аутентификации Spring Security с вашими данными о пользователях и стратегией хеширования паролей.
@@ -0,0 +1,34 @@
+package ru.s100p.user.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.s100p.shared.utils.JwkUtils;
+import ru.s100p.user.security.JwtKeyRing;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Публичные ключи проверки JWT в формате JWKS (RFC 7517).
+ * Документ собирается при загрузке ключей, поэтому запрос не выполняет никаких вычислений.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtKeyRing keyRing;
+
+    @Value("${jwt.keys.jwks-max-age:5m}")
+    private Duration jwksMaxAge;
+
+    @GetMapping(JwkUtils.JWKS_PATH)
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(jwksMaxAge).cachePublic())
+                .body(keyRing.jwks());
+    }
+}
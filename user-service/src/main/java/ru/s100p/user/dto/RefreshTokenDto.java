@@ -6,7 +6,7 @@ import java.time.LocalDateTime;
 public record RefreshTokenDto(
         Long id,
         Long userId,
-        String token,
+        String token, // заполняется только при выпуске токена; в БД хранится хеш
         LocalDateTime expiresAt,
         LocalDateTime createdAt,
         Boolean isRevoked
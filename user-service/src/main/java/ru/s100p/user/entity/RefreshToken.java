@@ -11,7 +11,6 @@ import java.time.LocalDateTime;
 @Table(name = "refresh_tokens",
         indexes = {
                 @Index(name = "idx_refresh_tokens_user", columnList = "user_id"),
-                @Index(name = "idx_refresh_tokens_token", columnList = "token"),
                 @Index(name = "idx_refresh_tokens_expires", columnList = "expires_at")
         })
 @Getter
@@ -29,8 +28,9 @@ public class RefreshToken {
     @JoinColumn(name = "user_id", nullable = false)
     User user;
 
-    @Column(length = 500, nullable = false, unique = true)
-    String token;
+    // SHA-256 значения токена: поиск по фиксированному ключу 32 байта, само значение в БД не хранится
+    @Column(name = "token_hash", nullable = false, unique = true)
+    byte[] tokenHash;
 
     @Column(name = "expires_at", nullable = false)
     LocalDateTime expiresAt;
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -11,6 +12,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+// UPDATE только измененных колонок: сохранение пользователя не затирает last_login, записанный
+// LastLoginRecorder после загрузки сущности
+@DynamicUpdate
 @Table(name = "users",
         indexes = {
                 @Index(name = "idx_users_email", columnList = "email"),
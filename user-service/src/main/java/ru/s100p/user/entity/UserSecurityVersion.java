@@ -0,0 +1,31 @@
+package ru.s100p.user.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Версия безопасности пользователя. Увеличивается при смене ролей, пароля или деактивации,
+ * после чего access токены с более старой версией перестают приниматься.
+ */
+@Entity
+@Table(name = "user_security_versions")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserSecurityVersion {
+
+    @Id
+    @Column(name = "user_id")
+    Long userId;
+
+    @Column(nullable = false)
+    Long version = 0L;
+
+    @Column(name = "updated_at")
+    LocalDateTime updatedAt;
+}
@@ -1,22 +1,59 @@
 package ru.s100p.user.kafka;
 
 import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 import ru.s100p.shared.events.PaymentProcessedEvent;
+import ru.s100p.shared.events.TokenRevokedEvent;
+import ru.s100p.shared.events.UserCacheInvalidatedEvent;
+import ru.s100p.user.security.RevokedTokenStore;
+import ru.s100p.user.security.SecurityVersionService;
+import ru.s100p.user.security.UserDetailsCache;
 
 import static ru.s100p.shared.constants.KafkaGroupNames.USER_SERVICE_GROUP;
 import static ru.s100p.shared.constants.KafkaTopicNames.PAYMENT_PROCESSED_TOPIC;
+import static ru.s100p.shared.constants.KafkaTopicNames.TOKEN_REVOCATION_TOPIC;
+import static ru.s100p.shared.constants.KafkaTopicNames.USER_CACHE_INVALIDATION_TOPIC;
 
+@Slf4j
 @Component
 @EnableKafka
 @RequiredArgsConstructor
 public class UserServiceListener {
 
+    private final UserDetailsCache userDetailsCache;
+    private final SecurityVersionService securityVersionService;
+    private final RevokedTokenStore revokedTokenStore;
+
     // Consumer для получения событий от других сервисов (если нужно)
     @KafkaListener(topics = PAYMENT_PROCESSED_TOPIC, groupId = USER_SERVICE_GROUP)
     public void handlePaymentProcessed(PaymentProcessedEvent event) {
         // Обновить статус пользователя при успешной оплате
 }
+
+    // Каждая реплика слушает топик своей уникальной группой, чтобы получить все сообщения, и читает только новые
+    @KafkaListener(topics = USER_CACHE_INVALIDATION_TOPIC,
+            groupId = "user-service-cache-#{T(java.util.UUID).randomUUID().toString()}",
+            properties = "auto.offset.reset=latest")
+    public void handleUserCacheInvalidated(UserCacheInvalidatedEvent event) {
+        log.debug("Получен сигнал сброса кешей пользователя: {}", event.getUserId());
+        userDetailsCache.invalidate(event.getUserId());
+        securityVersionService.evict(event.getUserId());
+    }
+
+    // Топик отзывов читается каждой репликой целиком с начала: так после старта восстанавливается черный список.
+    // Tombstone (value == null) означает, что токен истек и запись можно удалить
+    @KafkaListener(topics = TOKEN_REVOCATION_TOPIC,
+            groupId = "user-service-revocation-#{T(java.util.UUID).randomUUID().toString()}",
+            properties = "auto.offset.reset=earliest")
+    public void handleTokenRevocation(ConsumerRecord<String, TokenRevokedEvent> record) {
+        if (record.value() == null) {
+            revokedTokenStore.remove(record.key());
+            return;
+        }
+        revokedTokenStore.revoke(record.key(), record.value().getExpiresAt());
+    }
 }
@@ -5,17 +5,22 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
+import ru.s100p.shared.events.TokenRevokedEvent;
+import ru.s100p.shared.events.UserCacheInvalidatedEvent;
 import ru.s100p.shared.events.UserProfileUpdatedEvent;
 import ru.s100p.shared.events.UserRegisteredEvent;
 import ru.s100p.user.entity.Role;
 import ru.s100p.user.entity.User;
 import ru.s100p.user.entity.UserRole;
 
+import java.time.Instant;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+import static ru.s100p.shared.constants.KafkaTopicNames.TOKEN_REVOCATION_TOPIC;
+import static ru.s100p.shared.constants.KafkaTopicNames.USER_CACHE_INVALIDATION_TOPIC;
 import static ru.s100p.shared.constants.KafkaTopicNames.USER_PROFILE_UPDATED_TOPIC;
 import static ru.s100p.shared.constants.KafkaTopicNames.USER_REGISTERED_TOPIC;
 
@@ -208,6 +213,67 @@ public class UserServiceProducer {
         }
     }
 
+    /**
+     * Публикация сигнала для сброса локальных кешей пользователя на всех репликах
+     */
+    public void publishUserCacheInvalidated(Long userId) {
+        try {
+            UserCacheInvalidatedEvent event = UserCacheInvalidatedEvent.builder()
+                    .userId(userId)
+                    .build();
+
+            CompletableFuture<SendResult<String, Object>> future =
+                    kafkaTemplate.send(USER_CACHE_INVALIDATION_TOPIC, userId.toString(), event);
+
+            future.whenComplete((result, ex) -> {
+                if (ex == null) {
+                    log.debug("Событие UserCacheInvalidated отправлено: userId={}", userId);
+                } else {
+                    log.error("❌ Ошибка при отправке события UserCacheInvalidated: userId={}", userId, ex);
+                }
+            });
+
+        } catch (Exception e) {
+            log.error("Критическая ошибка при создании события UserCacheInvalidated для userId={}", userId, e);
+        }
+    }
+
+    /**
+     * Публикация отзыва access токена для остальных реплик и api-gateway (ключ — jti)
+     */
+    public void publishTokenRevoked(String tokenId, Instant expiresAt) {
+        try {
+            TokenRevokedEvent event = TokenRevokedEvent.builder()
+                    .tokenId(tokenId)
+                    .expiresAt(expiresAt)
+                    .build();
+
+            CompletableFuture<SendResult<String, Object>> future =
+                    kafkaTemplate.send(TOKEN_REVOCATION_TOPIC, tokenId, event);
+
+            future.whenComplete((result, ex) -> {
+                if (ex != null) {
+                    log.error("❌ Ошибка при отправке события TokenRevoked: tokenId={}", tokenId, ex);
+                }
+            });
+
+        } catch (Exception e) {
+            log.error("Критическая ошибка при создании события TokenRevoked для tokenId={}", tokenId, e);
+        }
+    }
+
+    /**
+     * Публикация tombstone для истекшего отозванного токена: компактирование удалит его из топика
+     */
+    public void publishTokenRevocationTombstone(String tokenId) {
+        kafkaTemplate.send(TOKEN_REVOCATION_TOPIC, tokenId, null)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.warn("Не удалось отправить tombstone для tokenId={}", tokenId, ex);
+                    }
+                });
+    }
+
     // ===== Вспомогательные методы =====
 
     /**
@@ -9,6 +9,8 @@ import org.springframework.kafka.config.TopicBuilder;
 import java.time.Duration;
 import java.util.Map;
 
+import static ru.s100p.shared.constants.KafkaTopicNames.TOKEN_REVOCATION_TOPIC;
+import static ru.s100p.shared.constants.KafkaTopicNames.USER_CACHE_INVALIDATION_TOPIC;
 import static ru.s100p.shared.constants.KafkaTopicNames.USER_PROFILE_UPDATED_TOPIC;
 import static ru.s100p.shared.constants.KafkaTopicNames.USER_REGISTERED_TOPIC;
 
@@ -38,5 +40,31 @@ public class UserServiceTopic {
                 .build();
     }
 
+    // Короткоживущие сигналы сброса кешей между репликами user-service, хранить их долго незачем
+    @Bean
+    public NewTopic userCacheInvalidationTopic() {
+        return TopicBuilder.name(USER_CACHE_INVALIDATION_TOPIC)
+                .partitions(1)
+                .replicas(3)
+                .configs(Map.of("min.insync.replicas", "2"))
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(Duration.ofHours(1).toMillis()))
+                .build();
+    }
+
+    // Отозванные токены: компактируемый топик (ключ — jti), новая реплика восстанавливает черный список чтением с начала.
+    // Истекшие записи удаляются tombstone-ами, а delete по retention страхует от пропущенных tombstone
+    @Bean
+    public NewTopic tokenRevocationTopic() {
+        return TopicBuilder.name(TOKEN_REVOCATION_TOPIC)
+                .partitions(3)
+                .replicas(3)
+                .configs(Map.of("min.insync.replicas", "2"))
+                .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT + "," + TopicConfig.CLEANUP_POLICY_DELETE)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(Duration.ofDays(1).toMillis()))
+                .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, String.valueOf(Duration.ofHours(1).toMillis()))
+                .config(TopicConfig.SEGMENT_MS_CONFIG, String.valueOf(Duration.ofHours(1).toMillis()))
+                .build();
+    }
+
 
 }
@@ -8,12 +8,17 @@ public final class RefreshTokenMapper {
 
     private RefreshTokenMapper() {}
 
+    // Значение токена в БД не хранится: в DTO оно есть только сразу после создания
     public static RefreshTokenDto toDto(RefreshToken token) {
+        return toDto(token, null);
+    }
+
+    public static RefreshTokenDto toDto(RefreshToken token, String tokenValue) {
         if (token == null) return null;
         return new RefreshTokenDto(
                 token.getId(),
                 token.getUser() != null ? token.getUser().getId() : null,
-                token.getToken(),
+                tokenValue,
                 token.getExpiresAt(),
                 token.getCreatedAt(),
                 token.getIsRevoked()
@@ -1,20 +1,32 @@
 package ru.s100p.user.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.s100p.user.entity.RefreshToken;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
 
-    Optional<RefreshToken> findByToken(String token);
-
     List<RefreshToken> findByUser_Id(Long userId);
 
     List<RefreshToken> findByUser_IdAndIsRevokedFalseAndExpiresAtAfter(Long userId, LocalDateTime now);
 
     void deleteByUser_Id(Long userId);
-}
 
+    // Отзыв одним UPDATE без предварительной загрузки токена
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.isRevoked = true WHERE t.tokenHash = :tokenHash")
+    int revokeByTokenHash(@Param("tokenHash") byte[] tokenHash);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.isRevoked = true WHERE t.id = :id")
+    int revokeById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.isRevoked = true WHERE t.user.id = :userId AND t.isRevoked = false")
+    int revokeAllByUserId(@Param("userId") Long userId);
+}
@@ -4,8 +4,10 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.s100p.user.entity.User;
 
 import java.time.LocalDateTime;
@@ -34,6 +36,19 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @EntityGraph(attributePaths = {"roles", "roles.role"})
     Optional<User> findWithRolesByEmail(String email);
 
+    // Вход по email или username: один запрос вместо поиска по каждому полю отдельно.
+    // Своя короткая транзакция: AuthService.authenticate не держит соединение на время проверки пароля
+    @Transactional(readOnly = true)
+    @EntityGraph(attributePaths = {"roles", "roles.role"})
+    @Query("SELECT u FROM User u WHERE u.email = :login OR u.username = :login")
+    List<User> findWithRolesByEmailOrUsername(@Param("login") String login);
+
+    // Перехеширование пароля при входе, только если хеш не изменился с момента загрузки пользователя
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :newHash WHERE u.id = :id AND u.passwordHash = :oldHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
     // Поиск пользователей с фильтрацией
     @Query("SELECT u FROM User u WHERE " +
             "LOWER(u.username) LIKE LOWER(:query) OR " +
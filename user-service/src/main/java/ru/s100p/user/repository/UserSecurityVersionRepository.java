@@ -0,0 +1,24 @@
+package ru.s100p.user.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.s100p.user.entity.UserSecurityVersion;
+
+import java.util.Optional;
+
+public interface UserSecurityVersionRepository extends JpaRepository<UserSecurityVersion, Long> {
+
+    @Query("SELECT v.version FROM UserSecurityVersion v WHERE v.userId = :userId")
+    Optional<Long> findVersionByUserId(@Param("userId") Long userId);
+
+    // Атомарное увеличение версии (строка создается при первом изменении)
+    @Modifying
+    @Query(value = "INSERT INTO user_security_versions (user_id, version, updated_at) " +
+            "VALUES (:userId, 1, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (user_id) DO UPDATE SET " +
+            "version = user_security_versions.version + 1, updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    int incrementVersion(@Param("userId") Long userId);
+}
@@ -0,0 +1,32 @@
+package ru.s100p.user.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * PasswordEncoder, выполняющий encode и matches в {@link PasswordHashingExecutor}.
+ * Все места хеширования (аутентификация, регистрация, смена и сброс пароля) получают ограничение
+ * через общий бин без изменения вызывающего кода.
+ */
+@RequiredArgsConstructor
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor executor;
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.execute("encode", () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.execute("matches", () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // Разбор префикса хеша, без вычислений
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,101 @@
+package ru.s100p.user.security;
+
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DelegatingPasswordEncoder с целевыми параметрами, подобранными {@link PasswordHashCalibrator}.
+ *
+ * <p>Новые хеши получают префикс алгоритма ({@code {bcrypt}}, {@code {argon2}}). Старые хеши без префикса
+ * проверяются как BCrypt. В отличие от стандартной реализации, {@link #upgradeEncoding(String)} срабатывает
+ * и при более высокой стоимости, чтобы стоимость входа можно было не только поднимать, но и снижать.</p>
+ *
+ * <p>Цель подбирается на каждом узле отдельно, поэтому стоимость хеша сравнивается с полосой допуска
+ * ({@code security.password-hashing.rehash-tolerance}): хеш перехешируется, только если BCrypt cost или
+ * число итераций Argon2 отличаются от цели больше чем на допуск. Реплики, откалибровавшиеся на соседние
+ * значения (разное железо или шум замера на границе), не перехешируют пароли друг друга при каждом входе.
+ * Для разнородного парка с большим разбросом стоимость следует закрепить явно через
+ * {@code bcrypt.cost} / {@code argon2.iterations} в общей конфигурации.</p>
+ */
+public class CalibratedPasswordEncoder extends DelegatingPasswordEncoder {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+
+    private static final String PREFIX = "{";
+    private static final String SUFFIX = "}";
+    private static final Pattern ARGON2_PARAMETERS = Pattern.compile("\\$m=(\\d+),t=(\\d+),p=(\\d+)\\$");
+
+    private final String idForEncode;
+    private final int bcryptCost;
+    private final int argon2MemoryKib;
+    private final int argon2Iterations;
+    private final int argon2Parallelism;
+    private final int tolerance;
+
+    public CalibratedPasswordEncoder(String idForEncode, Map<String, PasswordEncoder> encoders, int bcryptCost,
+                                     int argon2MemoryKib, int argon2Iterations, int argon2Parallelism,
+                                     int tolerance) {
+        super(idForEncode, encoders);
+        setDefaultPasswordEncoderForMatches(encoders.get(BCRYPT));
+        this.idForEncode = idForEncode;
+        this.bcryptCost = bcryptCost;
+        this.argon2MemoryKib = argon2MemoryKib;
+        this.argon2Iterations = argon2Iterations;
+        this.argon2Parallelism = argon2Parallelism;
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String prefixEncodedPassword) {
+        if (prefixEncodedPassword == null || prefixEncodedPassword.isEmpty()) {
+            return false;
+        }
+        String id = BCRYPT;
+        String encoded = prefixEncodedPassword;
+        if (prefixEncodedPassword.startsWith(PREFIX)) {
+            int end = prefixEncodedPassword.indexOf(SUFFIX);
+            if (end < 0) {
+                return true;
+            }
+            id = prefixEncodedPassword.substring(PREFIX.length(), end);
+            encoded = prefixEncodedPassword.substring(end + SUFFIX.length());
+        }
+        if (!id.equals(idForEncode)) {
+            return true;
+        }
+        return switch (id) {
+            case BCRYPT -> outsideTolerance(bcryptCost(encoded), bcryptCost);
+            case ARGON2 -> argon2NeedsUpgrade(encoded);
+            default -> false;
+        };
+    }
+
+    // Память и параллелизм задаются конфигурацией и должны совпадать; итерации подбираются замером
+    private boolean argon2NeedsUpgrade(String encoded) {
+        Matcher matcher = ARGON2_PARAMETERS.matcher(encoded);
+        if (!matcher.find()) {
+            return true;
+        }
+        return Integer.parseInt(matcher.group(1)) != argon2MemoryKib
+                || Integer.parseInt(matcher.group(3)) != argon2Parallelism
+                || outsideTolerance(Integer.parseInt(matcher.group(2)), argon2Iterations);
+    }
+
+    private boolean outsideTolerance(int actual, int target) {
+        return actual < 0 || Math.abs(actual - target) > tolerance;
+    }
+
+    // $2a$12$... -> 12
+    private static int bcryptCost(String encoded) {
+        try {
+            return Integer.parseInt(encoded.substring(4, 6));
+        } catch (RuntimeException ex) {
+            return -1;
+        }
+    }
+}
@@ -6,7 +6,6 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import ru.s100p.user.entity.User;
 import ru.s100p.user.repository.UserRepository;
 
@@ -21,14 +20,29 @@ import ru.s100p.user.repository.UserRepository;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
     /**
      * Загрузка пользователя по username для Spring Security
      * Также поддерживает вход по email
+     *
+     * <p>Метод не транзакционный: при попадании в кеш не нужно открывать транзакцию и брать соединение из пула.
+     * Роли загружаются вместе с пользователем через EntityGraph, поэтому ленивой загрузки вне транзакции не происходит.</p>
      */
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
+        return userDetailsCache.getByUsername(usernameOrEmail, this::findByUsernameOrEmail);
+    }
+
+    /**
+     * Загрузка пользователя по ID
+     * Используется для обновления контекста безопасности
+     */
+    public UserDetails loadUserById(Long id) {
+        return userDetailsCache.getById(id, this::findById);
+    }
+
+    private CustomUserPrincipal findByUsernameOrEmail(String usernameOrEmail) {
         log.debug("Загрузка пользователя для аутентификации: {}", usernameOrEmail);
 
         // Пытаемся найти пользователя по username или email
@@ -43,12 +57,7 @@ public class CustomUserDetailsService implements UserDetailsService {
         return CustomUserPrincipal.create(user);
     }
 
-    /**
-     * Загрузка пользователя по ID
-     * Используется для обновления контекста безопасности
-     */
-    @Transactional(readOnly = true)
-    public UserDetails loadUserById(Long id) {
+    private CustomUserPrincipal findById(Long id) {
         log.debug("Загрузка пользователя по ID: {}", id);
 
         User user = userRepository.findWithRolesById(id).orElseThrow(() -> {
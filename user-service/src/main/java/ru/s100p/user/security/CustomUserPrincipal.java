@@ -3,6 +3,7 @@ package ru.s100p.user.security;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import ru.s100p.shared.security.IdentityAssertion;
 import ru.s100p.user.entity.User;
 import ru.s100p.user.entity.UserRole;
 
@@ -14,7 +15,7 @@ import java.util.stream.Collectors;
  * Кастомная реализация UserDetails
  * Содержит дополнительную информацию о пользователе
  */
-class CustomUserPrincipal implements UserDetails {
+public class CustomUserPrincipal implements UserDetails {
 
     private final Long id;
     private final String username;
@@ -64,6 +65,46 @@ class CustomUserPrincipal implements UserDetails {
         );
     }
 
+    /**
+     * Создание CustomUserPrincipal из claims проверенного access токена (без обращения к БД).
+     * Пароль и email в токене не хранятся, аккаунт считается активным: деактивация отсекается
+     * проверкой версии безопасности в JwtAuthenticationFilter.
+     */
+    public static CustomUserPrincipal fromToken(VerifiedToken token) {
+        Set<GrantedAuthority> authorities = token.authorities().stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toSet());
+
+        return new CustomUserPrincipal(
+                token.userId(),
+                token.subject(),
+                null,
+                null,
+                authorities,
+                true,
+                false
+        );
+    }
+
+    /**
+     * Создание CustomUserPrincipal из подписанного заголовка gateway (без разбора JWT и обращения к БД)
+     */
+    public static CustomUserPrincipal fromIdentity(IdentityAssertion identity) {
+        Set<GrantedAuthority> authorities = identity.authorities().stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toSet());
+
+        return new CustomUserPrincipal(
+                identity.userId(),
+                identity.username(),
+                null,
+                null,
+                authorities,
+                true,
+                false
+        );
+    }
+
     /**
      * Получение дополнительных permissions на основе ролей
      */
@@ -0,0 +1,79 @@
+package ru.s100p.user.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.s100p.shared.security.IdentityAssertion;
+import ru.s100p.shared.security.IdentityHeaderCodec;
+import ru.s100p.shared.security.InternalNetworks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static ru.s100p.shared.constants.ApiConstants.IDENTITY_HEADER;
+
+/**
+ * Аутентификация по подписанному заголовку {@code X-User-Identity}, который api-gateway добавляет после проверки JWT.
+ *
+ * <p>Заголовок принимается только от адресов из {@code security.internal-ips} и только с действительной
+ * HMAC подписью и неистекшим сроком. Тогда JWT повторно не разбирается и пользователь не загружается из БД —
+ * проверяется лишь версия безопасности (локальный кеш), чтобы смена ролей или деактивация вступали в силу сразу.
+ * Во всех остальных случаях запрос обрабатывает {@link JwtAuthenticationFilter} как обычно.</p>
+ */
+@Slf4j
+@Component
+public class InternalIdentityFilter extends OncePerRequestFilter {
+
+    private final IdentityHeaderCodec identityHeaderCodec;
+    private final InternalNetworks internalNetworks;
+    private final SecurityVersionService securityVersionService;
+
+    public InternalIdentityFilter(@Value("${security.identity.secret}") String secret,
+                                  @Value("${security.identity.max-age:30s}") Duration maxAge,
+                                  @Value("${security.internal-ips:127.0.0.1}") List<String> internalIps,
+                                  SecurityVersionService securityVersionService) {
+        this.identityHeaderCodec = new IdentityHeaderCodec(secret, maxAge);
+        this.internalNetworks = new InternalNetworks(internalIps);
+        this.securityVersionService = securityVersionService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String header = request.getHeader(IDENTITY_HEADER);
+        if (header != null && internalNetworks.contains(request.getRemoteAddr())) {
+            Optional<IdentityAssertion> identity = identityHeaderCodec.decode(header);
+            if (identity.isPresent() && isCurrent(identity.get())) {
+                CustomUserPrincipal principal = CustomUserPrincipal.fromIdentity(identity.get());
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            } else {
+                log.debug("Заголовок {} отклонен", IDENTITY_HEADER);
+            }
+        } else if (header != null) {
+            log.warn("Заголовок {} получен не из внутренней сети: {}", IDENTITY_HEADER, request.getRemoteAddr());
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private boolean isCurrent(IdentityAssertion identity) {
+        if (identity.userId() == null || identity.securityVersion() == null) {
+            return false;
+        }
+        return securityVersionService.isCurrent(identity.userId(), identity.securityVersion());
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -16,6 +17,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Фильтр для проверки JWT токенов в каждом запросе
@@ -29,6 +31,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
     private final TokenBlacklistService tokenBlacklistService;
+    private final SecurityVersionService securityVersionService;
+
+    // Режим без обращения к БД: principal восстанавливается из claims токена
+    @Value("${jwt.stateless-principal:false}")
+    private boolean statelessPrincipal;
 
     /**
      * Основной метод фильтрации
@@ -44,6 +51,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
+        // Пользователь уже аутентифицирован по подписанному заголовку gateway (InternalIdentityFilter)
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         try {
             // Извлекаем JWT токен из заголовка
             String jwt = getJwtFromRequest(request);
@@ -51,25 +64,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Логируем информацию о запросе для отладки
             log.debug("Processing request to: {} {}", request.getMethod(), request.getRequestURI());
 
-            // Проверяем наличие токена и его валидность
-            if (StringUtils.hasText(jwt) && jwtService.validateToken(jwt)) {
+            // Разбираем и проверяем токен один раз: подпись, срок действия и claims
+            Optional<VerifiedToken> verified = StringUtils.hasText(jwt) ? jwtService.verify(jwt) : Optional.empty();
+
+            if (verified.isPresent()) {
+                VerifiedToken token = verified.get();
 
                 // Проверяем, не находится ли токен в черном списке
-                if (tokenBlacklistService.isTokenBlacklisted(jwt)) {
+                if (tokenBlacklistService.isTokenBlacklisted(token)) {
                     log.warn("Попытка использования токена из черного списка");
                     response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token has been revoked");
                     return;
                 }
 
-                // Извлекаем username из токена
-                String username = jwtService.getUsernameFromToken(jwt);
+                // Извлекаем username из уже проверенного токена
+                String username = token.subject();
                 log.debug("JWT токен валиден для пользователя: {}", username);
 
-                // Загружаем данные пользователя
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                // Восстанавливаем principal из claims (stateless режим) или загружаем пользователя из БД
+                UserDetails userDetails = resolveUserDetails(token);
 
-                // Дополнительная проверка токена с UserDetails
-                if (jwtService.validateToken(jwt, userDetails)) {
+                // Дополнительная проверка токена с UserDetails (без повторного разбора JWT)
+                if (userDetails != null && jwtService.validateToken(token, userDetails)) {
                     // Создаем объект аутентификации
                     UsernamePasswordAuthenticationToken authentication =
                             new UsernamePasswordAuthenticationToken(
@@ -129,6 +145,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Получение UserDetails для проверенного токена.
+     * В режиме {@code jwt.stateless-principal} principal строится из claims, а проверяется только версия
+     * безопасности пользователя (из локального кеша). Токены без userId/secVersion, выпущенные до включения
+     * режима, обрабатываются как раньше — через загрузку пользователя из БД.
+     *
+     * @return UserDetails или null, если токен выпущен до смены ролей, пароля или деактивации
+     */
+    private UserDetails resolveUserDetails(VerifiedToken token) {
+        Long userId = token.userId();
+        Long tokenVersion = token.securityVersion();
+
+        if (!statelessPrincipal || userId == null || tokenVersion == null) {
+            return userDetailsService.loadUserByUsername(token.subject());
+        }
+
+        if (!securityVersionService.isCurrent(userId, tokenVersion)) {
+            log.warn("Токен выпущен до изменения прав или деактивации пользователя: {}", token.subject());
+            return null;
+        }
+
+        return CustomUserPrincipal.fromToken(token);
+    }
+
     /**
      * Извлечение JWT токена из заголовка Authorization
      * Ожидаемый формат: "Bearer <token>"
@@ -170,6 +210,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 path.startsWith("/api/v1/auth/reset-password") ||
                 path.startsWith("/api/v1/auth/verify-email") ||
                 path.startsWith("/actuator/health") ||
+                path.startsWith("/.well-known/") ||
                 path.startsWith("/swagger-ui") ||
                 path.startsWith("/v3/api-docs");
     }
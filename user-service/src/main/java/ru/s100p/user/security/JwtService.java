@@ -1,33 +1,64 @@
 package ru.s100p.user.security;
 
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecurityException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import ru.s100p.shared.constants.SecurityConstants;
 
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    public static final String CLAIM_USERNAME = SecurityConstants.CLAIM_USERNAME;
+    public static final String CLAIM_AUTHORITIES = SecurityConstants.CLAIM_AUTHORITIES;
+    public static final String CLAIM_USER_ID = SecurityConstants.CLAIM_USER_ID;
+    public static final String CLAIM_SECURITY_VERSION = SecurityConstants.CLAIM_SECURITY_VERSION;
+
+    private final SecurityVersionService securityVersionService;
+    private final JwtKeyRing keyRing;
 
     @Value("${jwt.expiration}") // 1 час в миллисекундах
     private int jwtExpirationMs;
 
+    // Парсер строится один раз при старте: JwtParser неизменяем и потокобезопасен,
+    // поэтому один экземпляр переиспользуется всеми потоками запросов.
+    // Ключ проверки выбирается по заголовку kid, поэтому после ротации парсер пересоздавать не нужно
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        Key key = keyRing.verificationKey(header.getKeyId());
+                        if (key == null) {
+                            throw new SecurityException("Unknown JWT key id: " + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
     /**
      * Генерация access токена для аутентифицированного пользователя.
      *
@@ -38,6 +69,8 @@ public class JwtService {
      *         <ul>
      *             <li><b>username</b>: имя пользователя для идентификации владельца токена.</li>
      *             <li><b>authorities</b>: список ролей и прав доступа пользователя, преобразованный из {@code GrantedAuthority} в строки.</li>
+     *             <li><b>userId</b> и <b>secVersion</b>: ID пользователя и его текущая версия безопасности (если principal — {@code CustomUserPrincipal}).
+     *             Позволяют восстановить principal из токена без обращения к БД.</li>
      *         </ul>
      *     </li>
      *     <li>Вызывает {@code createToken} для создания подписанного JWT токена с коротким временем жизни ({@code jwtExpirationMs}).</li>
@@ -59,11 +92,16 @@ public class JwtService {
 
         // Формирование полезной нагрузки токена с данными пользователя
         Map<String, Object> claims = new HashMap<>();
-        claims.put("username", userPrincipal.getUsername());
+        claims.put(CLAIM_USERNAME, userPrincipal.getUsername());
         // Преобразование списка прав доступа в список строк для включения в токен
-        claims.put("authorities", userPrincipal.getAuthorities().stream()
+        claims.put(CLAIM_AUTHORITIES, userPrincipal.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toList()));
+        // ID и версия безопасности нужны для stateless восстановления principal в JwtAuthenticationFilter
+        if (userPrincipal instanceof CustomUserPrincipal customPrincipal) {
+            claims.put(CLAIM_USER_ID, customPrincipal.getId());
+            claims.put(CLAIM_SECURITY_VERSION, securityVersionService.currentVersion(customPrincipal.getId()));
+        }
 
         // Создание и подпись токена с коротким временем жизни
         return createToken(claims, userPrincipal.getUsername(), jwtExpirationMs);
@@ -73,20 +111,20 @@ public class JwtService {
      * Создание и подпись JWT токена.
      *
      * <p>Процесс подписи:</p>
-     * <p>Подпись токена происходит с помощью вызова {@code .signWith(getSignKey(), SignatureAlgorithm.HS256)}.</p>
+     * <p>Подпись токена происходит с помощью вызова {@code .signWith(signingKey.privateKey(), SignatureAlgorithm.RS256)}.</p>
      * <ol>
      *     <li><b>signWith(...)</b>: Метод из библиотеки JJWT, который отвечает за подпись JWT токена.</li>
-     *     <li><b>getSignKey()</b>: Внутренний метод, который предоставляет ключ для подписи. Он декодирует секретную строку (jwtSecret) из Base64 и создает на ее основе ключ для HMAC-SHA алгоритма.</li>
-     *     <li><b>SignatureAlgorithm.HS256</b>: Алгоритм шифрования (HMAC с использованием SHA-256), который используется для создания подписи.</li>
+     *     <li><b>signingKey</b>: Активный приватный ключ из {@link JwtKeyRing}. Его идентификатор записывается в заголовок {@code kid}, чтобы проверяющая сторона выбрала нужный публичный ключ даже во время ротации.</li>
+     *     <li><b>SignatureAlgorithm.RS256</b>: Асимметричная подпись (RSA с использованием SHA-256). Подписать может только user-service, а проверить — любой сервис, получивший публичный ключ через JWKS.</li>
      * </ol>
      *
      * <p>Как это обеспечивает аутентификацию?</p>
-     * <p>Когда сервер получает токен, он заново вычисляет подпись, используя тот же секретный ключ. Если вычисленная подпись совпадает с подписью в токене, это доказывает, что:</p>
+     * <p>Когда сервер получает токен, он проверяет подпись публичным ключом с указанным kid. Если подпись верна, это доказывает, что:</p>
      * <ul>
-     *     <li>Токен был выдан именно этим сервером (т.к. только он знает секрет).</li>
+     *     <li>Токен был выдан именно этим сервером (т.к. только он владеет приватным ключом).</li>
      *     <li>Данные в токене не были изменены после его выдачи.</li>
      * </ul>
-     * <p>Проверка подписи реализована в методе {@code validateToken}.</p>
+     * <p>Проверка подписи реализована в методе {@code verify}.</p>
      *
      * @param claims Дополнительные данные (полезная нагрузка), которые будут добавлены в токен.
      * @param subject "Тема" токена, обычно это имя пользователя.
@@ -96,22 +134,55 @@ public class JwtService {
     private String createToken(Map<String, Object> claims, String subject, int expirationMs) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expirationMs);
+        JwtKeyRing.SigningKey signingKey = keyRing.activeKey();
 
         return Jwts.builder()
+                // Идентификатор ключа подписи
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.kid())
                 // Установка полезной нагрузки (claims)
                 .setClaims(claims)
+                // Уникальный ID токена (jti) — компактный ключ для черного списка вместо всей строки токена
+                .setId(UUID.randomUUID().toString())
                 // Установка "темы" токена (обычно username)
                 .setSubject(subject)
                 // Установка времени создания токена
                 .setIssuedAt(now)
                 // Установка времени истечения срока действия токена
                 .setExpiration(expiryDate)
-                // Подпись токена с использованием секретного ключа и алгоритма HS256
-                .signWith(getSignKey(), SignatureAlgorithm.HS256)
+                // Подпись токена активным приватным ключом и алгоритмом RS256
+                .signWith(signingKey.privateKey(), SignatureAlgorithm.RS256)
                 // Сборка и сериализация токена в компактную строку (JWS)
                 .compact();
     }
 
+    /**
+     * Разбор и проверка токена за один проход.
+     *
+     * <p>Подпись и срок действия проверяются один раз, а результат (claims, subject, authorities, exp)
+     * возвращается в виде {@link VerifiedToken}. Дальше фильтр, черный список и logout работают
+     * только с этим объектом и не разбирают токен повторно.</p>
+     *
+     * @param token JWT токен без префикса "Bearer "
+     * @return проверенный токен или пустой Optional, если токен подделан, поврежден или истек
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        try {
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            return Optional.of(VerifiedToken.of(token, claims));
+        } catch (SecurityException ex) {
+            log.error("Invalid JWT signature");
+        } catch (MalformedJwtException ex) {
+            log.error("Invalid JWT token");
+        } catch (ExpiredJwtException ex) {
+            log.error("JWT token is expired");
+        } catch (UnsupportedJwtException ex) {
+            log.error("JWT token is unsupported");
+        } catch (IllegalArgumentException ex) {
+            log.error("JWT claims string is empty");
+        }
+        return Optional.empty();
+    }
+
     /**
      * Получение username из токена
      */
@@ -138,66 +209,28 @@ public class JwtService {
      * Извлечение всех claims из токена
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    /**
-     * Проверка истечения токена
-     */
-    private Boolean isTokenExpired(String token) {
-        return getExpirationDateFromToken(token).before(new Date());
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     /**
-     * Валидация токена
+     * Валидация уже проверенного токена относительно UserDetails.
+     * Срок действия проверен парсером в {@link #verify(String)}, здесь сравнивается только владелец.
      */
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = getUsernameFromToken(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    public boolean validateToken(VerifiedToken token, UserDetails userDetails) {
+        return token.subject().equals(userDetails.getUsername()) && !token.isExpired();
     }
 
     /**
      * Валидация токена без UserDetails. Этот метод — это, по сути, "детектор подделок" для JWT. Его единственная задача — ответить на вопрос: "Этот токен был выдан нашей системой, он не был изменен и его срок действия не истек?"
      */
     public boolean validateToken(String authToken) {
-        try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSignKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
-        } catch (SecurityException ex) {
-            log.error("Invalid JWT signature");
-        } catch (MalformedJwtException ex) {
-            log.error("Invalid JWT token");
-        } catch (ExpiredJwtException ex) {
-            log.error("JWT token is expired");
-        } catch (UnsupportedJwtException ex) {
-            log.error("JWT token is unsupported");
-        } catch (IllegalArgumentException ex) {
-            log.error("JWT claims string is empty");
-        }
-        return false;
-    }
-
-    /**
-     * Получение ключа для подписи
-     */
-    private Key getSignKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return verify(authToken).isPresent();
     }
 
     /**
      * Получение authorities из токена
      */
-    @SuppressWarnings("unchecked")
     public List<String> getAuthoritiesFromToken(String token) {
-        Claims claims = extractAllClaims(token);
-        return (List<String>) claims.get("authorities");
+        return VerifiedToken.of(token, extractAllClaims(token)).authorities();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package ru.s100p.user.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подбор стоимости хеширования паролей под железо текущего узла.
+ *
+ * <p>При старте хеш замеряется с минимальными параметрами, и выбирается наибольшая стоимость, при которой
+ * один хеш укладывается в {@code security.password-hashing.target-latency}: для BCrypt время удваивается
+ * с каждой единицей cost, для Argon2 растет линейно с числом итераций при фиксированной памяти. Явно заданные
+ * {@code bcrypt.cost} / {@code argon2.iterations} отключают замер. Пароли, параметры которых отличаются
+ * от цели больше чем на {@code rehash-tolerance}, перехешируются при следующем входе
+ * (см. {@link CalibratedPasswordEncoder#upgradeEncoding(String)}).</p>
+ */
+@Slf4j
+@Component
+public class PasswordHashCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+    private static final int SAMPLES = 3;
+    private static final int ARGON2_SALT_LENGTH = 16;
+    private static final int ARGON2_HASH_LENGTH = 32;
+
+    private final String algorithm;
+    private final long targetNanos;
+    private final int bcryptCost;
+    private final int bcryptMinCost;
+    private final int bcryptMaxCost;
+    private final int argon2MemoryKib;
+    private final int argon2Parallelism;
+    private final int argon2Iterations;
+    private final int argon2MaxIterations;
+    private final int rehashTolerance;
+
+    public PasswordHashCalibrator(@Value("${security.password-hashing.algorithm:bcrypt}") String algorithm,
+                                  @Value("${security.password-hashing.target-latency:250ms}") Duration targetLatency,
+                                  @Value("${security.password-hashing.bcrypt.cost:0}") int bcryptCost,
+                                  @Value("${security.password-hashing.bcrypt.min-cost:10}") int bcryptMinCost,
+                                  @Value("${security.password-hashing.bcrypt.max-cost:14}") int bcryptMaxCost,
+                                  @Value("${security.password-hashing.argon2.memory-kib:19456}") int argon2MemoryKib,
+                                  @Value("${security.password-hashing.argon2.parallelism:1}") int argon2Parallelism,
+                                  @Value("${security.password-hashing.argon2.iterations:0}") int argon2Iterations,
+                                  @Value("${security.password-hashing.argon2.max-iterations:10}") int argon2MaxIterations,
+                                  @Value("${security.password-hashing.rehash-tolerance:1}") int rehashTolerance) {
+        if (!CalibratedPasswordEncoder.BCRYPT.equals(algorithm) && !CalibratedPasswordEncoder.ARGON2.equals(algorithm)) {
+            throw new IllegalStateException("Неизвестный алгоритм хеширования паролей: " + algorithm);
+        }
+        this.algorithm = algorithm;
+        this.targetNanos = targetLatency.toNanos();
+        this.bcryptCost = bcryptCost;
+        this.bcryptMinCost = bcryptMinCost;
+        this.bcryptMaxCost = bcryptMaxCost;
+        this.argon2MemoryKib = argon2MemoryKib;
+        this.argon2Parallelism = argon2Parallelism;
+        this.argon2Iterations = argon2Iterations;
+        this.argon2MaxIterations = argon2MaxIterations;
+        this.rehashTolerance = rehashTolerance;
+    }
+
+    /**
+     * Encoder с целевыми параметрами для нового хеширования; проверка поддерживает все известные алгоритмы
+     */
+    public PasswordEncoder createEncoder() {
+        boolean argon2 = CalibratedPasswordEncoder.ARGON2.equals(algorithm);
+        // Для проверки существующих хешей BCrypt стоимость encoder не важна — она берется из хеша
+        int cost = argon2 ? bcryptMinCost : calibrateBcrypt();
+        int iterations = argon2 ? calibrateArgon2() : Math.max(argon2Iterations, 1);
+
+        Map<String, PasswordEncoder> encoders = Map.of(
+                CalibratedPasswordEncoder.BCRYPT, new BCryptPasswordEncoder(cost),
+                CalibratedPasswordEncoder.ARGON2, argon2(iterations));
+        return new CalibratedPasswordEncoder(algorithm, encoders, cost, argon2MemoryKib, iterations,
+                argon2Parallelism, rehashTolerance);
+    }
+
+    private int calibrateBcrypt() {
+        if (bcryptCost > 0) {
+            log.info("Хеширование паролей: BCrypt cost={} (задан явно)", bcryptCost);
+            return bcryptCost;
+        }
+        long nanos = measureNanos(new BCryptPasswordEncoder(bcryptMinCost));
+        int cost = bcryptMinCost;
+        long estimated = nanos;
+        while (cost < bcryptMaxCost && estimated * 2 <= targetNanos) {
+            cost++;
+            estimated *= 2;
+        }
+        log.info("Хеширование паролей: BCrypt cost={} (cost {} — {} мс, оценка {} мс при цели {} мс)",
+                cost, bcryptMinCost, TimeUnit.NANOSECONDS.toMillis(nanos),
+                TimeUnit.NANOSECONDS.toMillis(estimated), TimeUnit.NANOSECONDS.toMillis(targetNanos));
+        return cost;
+    }
+
+    private int calibrateArgon2() {
+        if (argon2Iterations > 0) {
+            log.info("Хеширование паролей: Argon2 m={} KiB, t={}, p={} (заданы явно)",
+                    argon2MemoryKib, argon2Iterations, argon2Parallelism);
+            return argon2Iterations;
+        }
+        long nanos = measureNanos(argon2(1));
+        int iterations = Math.clamp(targetNanos / Math.max(nanos, 1), 1, argon2MaxIterations);
+        log.info("Хеширование паролей: Argon2 m={} KiB, t={}, p={} (t=1 — {} мс при цели {} мс)",
+                argon2MemoryKib, iterations, argon2Parallelism, TimeUnit.NANOSECONDS.toMillis(nanos),
+                TimeUnit.NANOSECONDS.toMillis(targetNanos));
+        return iterations;
+    }
+
+    private Argon2PasswordEncoder argon2(int iterations) {
+        return new Argon2PasswordEncoder(ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH, argon2Parallelism,
+                argon2MemoryKib, iterations);
+    }
+
+    // Минимум из нескольких замеров после прогрева: меньше всего зависит от JIT и пауз GC
+    private static long measureNanos(PasswordEncoder encoder) {
+        encoder.encode(SAMPLE_PASSWORD);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long started = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            best = Math.min(best, System.nanoTime() - started);
+        }
+        return best;
+    }
+}
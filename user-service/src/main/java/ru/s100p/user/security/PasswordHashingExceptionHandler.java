@@ -0,0 +1,22 @@
+package ru.s100p.user.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.s100p.shared.dto.ApiResponse;
+
+/**
+ * Отказ пула хеширования паролей — 503 с Retry-After вместо 500 от стандартной страницы ошибки
+ */
+@RestControllerAdvice
+public class PasswordHashingExceptionHandler {
+
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<ApiResponse<Void>> handleRejected(PasswordHashingRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(ApiResponse.error(ex.getMessage(), ex.getErrorCode()));
+    }
+}
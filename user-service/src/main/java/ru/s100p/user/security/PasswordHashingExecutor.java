@@ -0,0 +1,148 @@
+package ru.s100p.user.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Отдельный ограниченный пул для хеширования паролей.
+ *
+ * <p>BCrypt занимает ядро на десятки миллисекунд, и без ограничения всплеск логинов забирает все потоки
+ * Tomcat: дешевые запросы ({@code /auth/me}, чтение профиля) ждут в очереди коннектора. Здесь хеширование
+ * выполняют не больше {@code security.password-hashing.threads} потоков (по умолчанию — число ядер),
+ * а ожидающие задачи стоят в очереди ограниченной длины. Если очередь заполнена или задача не начала
+ * выполняться за {@code max-wait}, запрос сразу получает {@link PasswordHashingRejectedException} (503).</p>
+ *
+ * <p>Метрики: {@code password.hashing.queue.wait} и {@code password.hashing.time} с тегом
+ * {@code operation} (encode, matches), {@code password.hashing.rejected{reason}} и метрики пула
+ * {@code executor.*} с тегом {@code name=password-hashing}.</p>
+ */
+@Slf4j
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final Duration maxWait;
+    private final long retryAfterSeconds;
+    private final MeterRegistry meterRegistry;
+
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+                                   @Value("${security.password-hashing.threads:0}") int threads,
+                                   @Value("${security.password-hashing.queue-capacity:0}") int queueCapacity,
+                                   @Value("${security.password-hashing.max-wait:2s}") Duration maxWait,
+                                   @Value("${security.password-hashing.retry-after:1s}") Duration retryAfter) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        int capacity = queueCapacity > 0 ? queueCapacity : poolSize * 4;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), threadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.executor.prestartAllCoreThreads();
+        this.maxWait = maxWait;
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+        this.meterRegistry = meterRegistry;
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "password-hashing");
+        log.info("Пул хеширования паролей: {} потоков, очередь {}", poolSize, capacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Выполнение хеширования в пуле; вызывающий поток ждет результат
+     *
+     * @param operation значение тега {@code operation} метрик
+     * @throws PasswordHashingRejectedException очередь заполнена или задача не дождалась потока
+     */
+    public <T> T execute(String operation, Supplier<T> task) {
+        long submittedNanos = System.nanoTime();
+        // Кто первым установит флаг: поток пула (начал выполнение) или вызывающий поток (отказался ждать)
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                long startedNanos = System.nanoTime();
+                timer("password.hashing.queue.wait", operation).record(startedNanos - submittedNanos, TimeUnit.NANOSECONDS);
+                try {
+                    return task.get();
+                } finally {
+                    timer("password.hashing.time", operation).record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            throw reject("queue_full");
+        }
+
+        try {
+            try {
+                return future.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                if (claimed.compareAndSet(false, true)) {
+                    // Задача еще в очереди: поток пула пропустит ее
+                    future.cancel(false);
+                    throw reject("timeout");
+                }
+                // Хеширование уже идет — дожидаемся результата
+                return future.get();
+            }
+        } catch (InterruptedException ex) {
+            claimed.set(true);
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание хеширования пароля прервано", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private PasswordHashingRejectedException reject(String reason) {
+        Counter.builder("password.hashing.rejected")
+                .description("Password hashing requests rejected by admission control")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        return new PasswordHashingRejectedException(retryAfterSeconds);
+    }
+
+    private Timer timer(String name, String operation) {
+        return Timer.builder(name)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package ru.s100p.user.security;
+
+import ru.s100p.shared.constants.ErrorCodes;
+import ru.s100p.shared.exceptions.BusinessException;
+
+/**
+ * Очередь хеширования паролей заполнена или задача не дождалась свободного потока.
+ * Отдается клиенту как 503 с Retry-After (см. {@link PasswordHashingExceptionHandler}).
+ */
+public class PasswordHashingRejectedException extends BusinessException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingRejectedException(long retryAfterSeconds) {
+        super("Сервис перегружен, повторите запрос позже", ErrorCodes.SERVICE_OVERLOADED);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,182 @@
+package ru.s100p.user.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Хранилище отозванных access токенов, ключ — jti.
+ *
+ * <p>Каждая запись живет ровно до {@code exp} своего токена: после этого токен и так не пройдет проверку
+ * подписи/срока в {@link JwtService#verify(String)}, и держать его в памяти незачем. Истекшие записи
+ * удаляются по отсортированному индексу сроков (от ближайшего к дальнему) в {@link #purgeExpired()}, который
+ * по расписанию вызывает {@link TokenBlacklistService} (и публикует по удаленным записям tombstone в Kafka).</p>
+ *
+ * <p>Размер ограничен {@code jwt.revocation.max-entries}. При переполнении вытесняются записи с ближайшим
+ * сроком истечения — им осталось жить меньше всего. Число истекших и вытесненных записей публикуется
+ * в метриках {@code jwt.revocation.expired} и {@code jwt.revocation.evicted}.</p>
+ *
+ * <p>Проверка на каждом запросе идет через фильтр Блума: почти все токены не отозваны, и отрицательный ответ
+ * фильтра возвращается без обращения к основному хранилищу. Фильтр периодически перестраивается из живых
+ * записей, чтобы истекшие токены не накапливали ложноположительные ответы. Ложноположительные ответы
+ * считаются в {@code jwt.revocation.bloom.false-positives}, расчетная доля — {@code jwt.revocation.bloom.expected-fpp}.</p>
+ */
+@Slf4j
+@Component
+public class RevokedTokenStore {
+
+    private final ConcurrentHashMap<String, Long> expiryByTokenId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> expiryIndex = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong(Entry::expiresAt).thenComparing(Entry::tokenId));
+
+    private final int maxEntries;
+    private final double bloomFalsePositiveRate;
+    private final Counter expiredCounter;
+    private final Counter evictedCounter;
+    private final Counter bloomNegativeCounter;
+    private final Counter bloomFalsePositiveCounter;
+
+    // Текущий фильтр и фильтр, который строится при перестройке (запись идет в оба)
+    private volatile RevocationBloomFilter bloomFilter;
+    private volatile RevocationBloomFilter pendingBloomFilter;
+
+    public RevokedTokenStore(MeterRegistry meterRegistry,
+                             @Value("${jwt.revocation.max-entries:100000}") int maxEntries,
+                             @Value("${jwt.revocation.bloom.false-positive-rate:0.01}") double bloomFalsePositiveRate) {
+        this.maxEntries = maxEntries;
+        this.bloomFalsePositiveRate = bloomFalsePositiveRate;
+        this.bloomFilter = new RevocationBloomFilter(maxEntries, bloomFalsePositiveRate);
+        this.expiredCounter = meterRegistry.counter("jwt.revocation.expired");
+        this.evictedCounter = meterRegistry.counter("jwt.revocation.evicted");
+        this.bloomNegativeCounter = meterRegistry.counter("jwt.revocation.bloom.negatives");
+        this.bloomFalsePositiveCounter = meterRegistry.counter("jwt.revocation.bloom.false-positives");
+        meterRegistry.gaugeMapSize("jwt.revocation.entries", Tags.empty(), expiryByTokenId);
+        meterRegistry.gauge("jwt.revocation.bloom.expected-fpp", this, store -> store.bloomFilter.expectedFalsePositiveRate());
+    }
+
+    /**
+     * Отзыв токена до момента его истечения
+     */
+    public void revoke(String tokenId, Instant expiresAt) {
+        long now = System.currentTimeMillis();
+        long expiresAtMs = expiresAt.toEpochMilli();
+        if (expiresAtMs <= now) {
+            return;
+        }
+
+        Long previous = expiryByTokenId.put(tokenId, expiresAtMs);
+        if (previous != null) {
+            expiryIndex.remove(new Entry(previous, tokenId));
+        }
+        expiryIndex.add(new Entry(expiresAtMs, tokenId));
+
+        // Сначала запись в хранилище, потом в фильтры, причем pending читается раньше текущего:
+        // перестройка либо увидит запись при обходе хранилища, либо получит ее через pending, либо уже подменила фильтр
+        RevocationBloomFilter pending = pendingBloomFilter;
+        if (pending != null) {
+            pending.put(tokenId);
+        }
+        bloomFilter.put(tokenId);
+
+        evictOverflow();
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (!bloomFilter.mightContain(tokenId)) {
+            bloomNegativeCounter.increment();
+            return false;
+        }
+
+        Long expiresAtMs = expiryByTokenId.get(tokenId);
+        boolean revoked = expiresAtMs != null && expiresAtMs > System.currentTimeMillis();
+        if (!revoked) {
+            bloomFalsePositiveCounter.increment();
+        }
+        return revoked;
+    }
+
+    public int size() {
+        return expiryByTokenId.size();
+    }
+
+    /**
+     * Удаление записи (tombstone из топика отзывов)
+     */
+    public void remove(String tokenId) {
+        Long expiresAtMs = expiryByTokenId.remove(tokenId);
+        if (expiresAtMs != null) {
+            expiryIndex.remove(new Entry(expiresAtMs, tokenId));
+        }
+    }
+
+    /**
+     * Удаление истекших записей
+     *
+     * @return jti удаленных записей
+     */
+    public List<String> purgeExpired() {
+        long now = System.currentTimeMillis();
+        List<String> expired = new ArrayList<>();
+        Iterator<Entry> iterator = expiryIndex.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.expiresAt() > now) {
+                break;
+            }
+            iterator.remove();
+            if (expiryByTokenId.remove(entry.tokenId(), entry.expiresAt())) {
+                expiredCounter.increment();
+                expired.add(entry.tokenId());
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Перестройка фильтра Блума из живых записей: удаляет из него истекшие и вытесненные токены
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.bloom.rebuild-interval-ms:300000}")
+    public synchronized void rebuildBloomFilter() {
+        long now = System.currentTimeMillis();
+
+        RevocationBloomFilter rebuilt = new RevocationBloomFilter(maxEntries, bloomFalsePositiveRate);
+        pendingBloomFilter = rebuilt;
+        expiryByTokenId.forEach((tokenId, expiresAtMs) -> {
+            if (expiresAtMs > now) {
+                rebuilt.put(tokenId);
+            }
+        });
+        bloomFilter = rebuilt;
+        pendingBloomFilter = null;
+
+        log.debug("Фильтр Блума черного списка перестроен, записей: {}", expiryByTokenId.size());
+    }
+
+    private void evictOverflow() {
+        while (expiryByTokenId.size() > maxEntries) {
+            Entry entry = expiryIndex.pollFirst();
+            if (entry == null) {
+                return;
+            }
+            if (expiryByTokenId.remove(entry.tokenId(), entry.expiresAt())) {
+                evictedCounter.increment();
+                log.warn("Черный список токенов переполнен, вытеснен токен со сроком до {}", Instant.ofEpochMilli(entry.expiresAt()));
+            }
+        }
+    }
+
+    private record Entry(long expiresAt, String tokenId) {
+    }
+}
@@ -0,0 +1,99 @@
+package ru.s100p.user.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.s100p.user.kafka.UserServiceProducer;
+import ru.s100p.user.repository.UserSecurityVersionRepository;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Версии безопасности пользователей.
+ *
+ * <p>Версия попадает в access токен (claim "secVersion") при его выпуске. Если после этого у пользователя
+ * сменились роли, пароль или аккаунт был деактивирован, версия увеличивается и старые токены
+ * перестают приниматься фильтром в режиме {@code jwt.stateless-principal}.</p>
+ *
+ * <p>Для проверки на каждом запросе версии кешируются локально и перечитываются из БД не чаще,
+ * чем раз в {@code jwt.security-version.cache-ttl-ms}, поэтому горячий путь не ходит в базу.</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SecurityVersionService {
+
+    private final UserSecurityVersionRepository securityVersionRepository;
+    private final UserDetailsCache userDetailsCache;
+    private final UserServiceProducer userServiceProducer;
+
+    @Value("${jwt.security-version.cache-ttl-ms:30000}")
+    private long cacheTtlMs;
+
+    private final ConcurrentHashMap<Long, CachedVersion> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Текущая версия безопасности пользователя (0, если версия ни разу не менялась)
+     */
+    public long currentVersion(Long userId) {
+        long now = System.currentTimeMillis();
+        CachedVersion cached = versions.get(userId);
+        if (cached != null && now - cached.loadedAt() < cacheTtlMs) {
+            return cached.version();
+        }
+
+        long version = securityVersionRepository.findVersionByUserId(userId).orElse(0L);
+        versions.put(userId, new CachedVersion(version, now));
+        return version;
+    }
+
+    /**
+     * Проверка, что версия из токена не устарела
+     */
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        return tokenVersion >= currentVersion(userId);
+    }
+
+    /**
+     * Увеличение версии: все ранее выданные access токены пользователя становятся недействительными.
+     * Вызывается при каждом изменении ролей, пароля или активности пользователя, поэтому здесь же
+     * сбрасывается кеш UserDetails — локально и на других репликах через Kafka.
+     */
+    @Transactional
+    public void bumpVersion(Long userId) {
+        securityVersionRepository.incrementVersion(userId);
+        evictLocalCaches(userId);
+
+        // Повторно сбрасываем кеши после коммита, чтобы не закешировать значение, прочитанное до него,
+        // и только после коммита оповещаем остальные реплики
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictLocalCaches(userId);
+                    userServiceProducer.publishUserCacheInvalidated(userId);
+                }
+            });
+        } else {
+            userServiceProducer.publishUserCacheInvalidated(userId);
+        }
+
+        log.debug("Версия безопасности увеличена для пользователя: {}", userId);
+    }
+
+    public void evict(Long userId) {
+        versions.remove(userId);
+    }
+
+    private void evictLocalCaches(Long userId) {
+        evict(userId);
+        userDetailsCache.invalidate(userId);
+    }
+
+    private record CachedVersion(long version, long loadedAt) {
+    }
+}
@@ -1,43 +1,68 @@
 // TokenBlacklistService.java (заглушка)
 package ru.s100p.user.security;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import ru.s100p.user.kafka.UserServiceProducer;
+import ru.s100p.user.token.TokenStore;
 
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
+import java.util.List;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class TokenBlacklistService {
 
-    //TODO Временное хранилище (в продакшене использовать Redis)
-    private final Set<String> blacklistedTokens = ConcurrentHashMap.newKeySet();
-    private final ConcurrentHashMap<String, Long> passwordResetTokens = new ConcurrentHashMap<>();
+    // Отозванные access токены по jti, каждая запись живет до exp своего токена
+    private final RevokedTokenStore revokedTokenStore;
+    // Отзывы рассылаются остальным репликам и api-gateway через компактируемый топик
+    private final UserServiceProducer userServiceProducer;
+    // Токены сброса пароля хранятся в общем TokenStore с TTL
+    private final TokenStore tokenStore;
 
-    public void blacklistToken(String token) {
-        blacklistedTokens.add(token);
+    @Value("${token-store.password-reset-ttl:1h}")
+    private Duration passwordResetTtl;
+
+    private static final String PASSWORD_RESET_KEY_PREFIX = "password-reset:";
+
+    public void blacklistToken(VerifiedToken token) {
+        revokedTokenStore.revoke(token.tokenId(), token.expiresAt());
+        userServiceProducer.publishTokenRevoked(token.tokenId(), token.expiresAt());
         log.debug("Токен добавлен в черный список");
     }
 
-    public boolean isTokenBlacklisted(String token) {
-        return blacklistedTokens.contains(token);
+    public boolean isTokenBlacklisted(VerifiedToken token) {
+        return revokedTokenStore.isRevoked(token.tokenId());
     }
 
-    public void savePasswordResetToken(Long userId, String token) {
-        passwordResetTokens.put(token, userId);
-        log.debug("Токен сброса пароля сохранен для пользователя: {}", userId);
+    /**
+     * Удаление истекших отозванных токенов и публикация tombstone по ним.
+     * Tombstone могут прийти от нескольких реплик — для компактируемого топика это безопасно.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:60000}")
+    public void purgeExpiredTokens() {
+        List<String> expired = revokedTokenStore.purgeExpired();
+        expired.forEach(userServiceProducer::publishTokenRevocationTombstone);
+        if (!expired.isEmpty()) {
+            log.debug("Удалено истекших токенов из черного списка: {}", expired.size());
+        }
     }
 
-    public Long validatePasswordResetToken(String token) {
-        Long userId = passwordResetTokens.get(token);
-        if (userId == null) {
-            throw new IllegalArgumentException("Неверный или истекший токен сброса пароля");
-        }
-        return userId;
+    public void savePasswordResetToken(Long userId, String token) {
+        tokenStore.put(PASSWORD_RESET_KEY_PREFIX + token, userId.toString(), passwordResetTtl);
+        log.debug("Токен сброса пароля сохранен для пользователя: {}", userId);
     }
 
-    public void deletePasswordResetToken(String token) {
-        passwordResetTokens.remove(token);
+    /**
+     * Проверка и погашение токена сброса пароля: токен одноразовый, повторное использование невозможно даже при гонке
+     */
+    public Long consumePasswordResetToken(String token) {
+        return tokenStore.getAndDelete(PASSWORD_RESET_KEY_PREFIX + token)
+                .map(Long::valueOf)
+                .orElseThrow(() -> new IllegalArgumentException("Неверный или истекший токен сброса пароля"));
     }
 }
@@ -0,0 +1,78 @@
+package ru.s100p.user.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Ограниченный локальный кеш UserDetails перед CustomUserDetailsService.
+ *
+ * <p>Записи вытесняются по размеру ({@code user-details.cache.maximum-size}) и истекают через
+ * {@code user-details.cache.expire-after-write} после загрузки. Кроме того, записи пользователя сбрасываются
+ * явно при смене ролей, пароля или деактивации (см. {@link SecurityVersionService#bumpVersion(Long)}),
+ * в том числе на других репликах через Kafka.</p>
+ *
+ * <p>Hit/miss и число вытеснений публикуются в Micrometer как метрики {@code cache.*}
+ * с тегом {@code cache=user_details_by_username} / {@code user_details_by_id}.</p>
+ */
+@Slf4j
+@Component
+public class UserDetailsCache {
+
+    private final boolean enabled;
+
+    // Ключ — строка, по которой искали пользователя (username или email)
+    private final Cache<String, CustomUserPrincipal> byUsername;
+    private final Cache<Long, CustomUserPrincipal> byId;
+
+    public UserDetailsCache(MeterRegistry meterRegistry,
+                            @Value("${user-details.cache.enabled:true}") boolean enabled,
+                            @Value("${user-details.cache.maximum-size:10000}") long maximumSize,
+                            @Value("${user-details.cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.enabled = enabled;
+        this.byUsername = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, byUsername, "user_details_by_username");
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "user_details_by_id");
+    }
+
+    public CustomUserPrincipal getByUsername(String usernameOrEmail, Function<String, CustomUserPrincipal> loader) {
+        if (!enabled) {
+            return loader.apply(usernameOrEmail);
+        }
+        return byUsername.get(usernameOrEmail, loader);
+    }
+
+    public CustomUserPrincipal getById(Long id, Function<Long, CustomUserPrincipal> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        return byId.get(id, loader);
+    }
+
+    /**
+     * Сброс всех записей пользователя в локальном кеше.
+     * Записи по username ищутся перебором: инвалидации редки (смена ролей, пароля, деактивация).
+     */
+    public void invalidate(Long userId) {
+        byId.invalidate(userId);
+        byUsername.asMap().values().removeIf(principal -> userId.equals(principal.getId()));
+        log.debug("Кеш UserDetails сброшен для пользователя: {}", userId);
+    }
+}
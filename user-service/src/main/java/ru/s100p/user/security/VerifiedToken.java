@@ -0,0 +1,77 @@
+package ru.s100p.user.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Результат однократной проверки JWT токена.
+ *
+ * <p>Создается только в {@link JwtService#verify(String)} после проверки подписи и срока действия,
+ * поэтому все поля можно использовать без повторного разбора токена.</p>
+ *
+ * @param token       исходная строка токена
+ * @param claims      полезная нагрузка токена
+ * @param subject     владелец токена (username)
+ * @param authorities роли и права из claim "authorities"
+ * @param expiresAt   момент истечения срока действия (claim "exp")
+ */
+public record VerifiedToken(
+        String token,
+        Claims claims,
+        String subject,
+        List<String> authorities,
+        Instant expiresAt
+) {
+
+    static VerifiedToken of(String token, Claims claims) {
+        return new VerifiedToken(
+                token,
+                claims,
+                claims.getSubject(),
+                extractAuthorities(claims),
+                claims.getExpiration().toInstant()
+        );
+    }
+
+    /**
+     * Идентификатор токена для черного списка: claim "jti", а для токенов, выпущенных без него, — сама строка токена
+     */
+    public String tokenId() {
+        String jti = claims.getId();
+        return jti != null ? jti : token;
+    }
+
+    public boolean isExpired() {
+        return expiresAt.isBefore(Instant.now());
+    }
+
+    /**
+     * ID пользователя из claim "userId" (null для токенов, выпущенных без него)
+     */
+    public Long userId() {
+        return longClaim(JwtService.CLAIM_USER_ID);
+    }
+
+    /**
+     * Версия безопасности пользователя на момент выпуска токена (null, если claim отсутствует)
+     */
+    public Long securityVersion() {
+        return longClaim(JwtService.CLAIM_SECURITY_VERSION);
+    }
+
+    private Long longClaim(String name) {
+        Object value = claims.get(name);
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> extractAuthorities(Claims claims) {
+        Object authorities = claims.get(JwtService.CLAIM_AUTHORITIES);
+        if (authorities instanceof List<?> list) {
+            return List.copyOf((List<String>) list);
+        }
+        return List.of();
+    }
+}
@@ -2,7 +2,7 @@ package ru.s100p.user.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,10 +17,16 @@ import ru.s100p.user.dto.response.AuthResponse;
 import ru.s100p.user.entity.User;
 import ru.s100p.user.mapper.UserMapper;
 import ru.s100p.user.repository.UserRepository;
+import ru.s100p.user.security.CustomUserPrincipal;
 import ru.s100p.user.security.JwtService;
+import ru.s100p.user.security.PasswordHashingRejectedException;
+import ru.s100p.user.security.SecurityVersionService;
 import ru.s100p.user.security.TokenBlacklistService;
+import ru.s100p.user.security.VerifiedToken;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Slf4j
@@ -29,27 +35,32 @@ import java.util.UUID;
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
     private final RefreshTokenService refreshTokenService;
     private final TokenBlacklistService tokenBlacklistService;
     private final EmailVerificationService emailVerificationService;
     private final PasswordEncoder passwordEncoder;
+    private final SecurityVersionService securityVersionService;
+    private final LastLoginRecorder lastLoginRecorder;
 
     private static final long ACCESS_TOKEN_EXPIRY = 3600; // 1 час в секундах
     private static final long REFRESH_TOKEN_EXPIRY = 604800; // 7 дней в секундах
     private static final long REMEMBER_ME_EXPIRY = 2592000; // 30 дней в секундах
 
     /**
-     * Аутентификация пользователя
+     * Аутентификация пользователя.
+     *
+     * <p>Метод намеренно не транзакционный: проверка пароля ждет в очереди пула хеширования до {@code max-wait}
+     * и занимает ядро на время хеша, и все это время транзакция держала бы соединение JDBC. Во всплеск логинов
+     * пул соединений исчерпывался бы раньше пула хеширования, и дешевые запросы ({@code /auth/me}, профиль)
+     * ждали бы соединение. Пользователь загружается короткой читающей транзакцией, пароль проверяется без
+     * соединения, а записи (новый хеш, refresh-токен) выполняются каждая в своей короткой транзакции.</p>
      */
-    @Transactional
     public AuthResponse authenticate(LoginRequest request) {
         log.info("Попытка аутентификации: {}", request.getUsernameOrEmail());
 
-        // Найти пользователя по email или username
-        User user = userRepository.findByEmail(request.getUsernameOrEmail())
-                .or(() -> userRepository.findByUsername(request.getUsernameOrEmail()))
+        // Пользователь вместе с ролями загружается одним запросом и дальше используется для проверки пароля и выпуска токенов
+        User user = findForLogin(request.getUsernameOrEmail())
                 .orElseThrow(() -> new BusinessException("Неверные учетные данные", ErrorCodes.INVALID_CREDENTIALS));
 
         // Проверка активности аккаунта
@@ -57,17 +68,25 @@ public class AuthService {
             throw new BusinessException("Аккаунт деактивирован", ErrorCodes.ACCOUNT_DISABLED);
         }
 
-        // Аутентификация через Spring Security
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        user.getUsername(),
-                        request.getPassword()
-                )
-        );
+        // Проверка пароля по уже загруженному хешу, без повторной загрузки через UserDetailsService.
+        // BadCredentialsException, как и раньше из AuthenticationManager, превращается в 401 в JwtAuthenticationEntryPoint
+        if (!passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        CustomUserPrincipal principal = CustomUserPrincipal.create(user);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
 
-        // Обновление информации о последнем входе
-        user.setLastLogin(LocalDateTime.now());
-        userRepository.save(user);
+        // Хеш с устаревшим алгоритмом или стоимостью перехешируется, пока известен открытый пароль
+        rehashPasswordIfNeeded(user, request.getPassword());
+
+        // Определение, первый ли это вход (до обновления lastLogin). Этот этап нужен для того, чтобы приложение могло по-особому отреагировать на первый вход пользователя. Например, показать ему приветственное сообщение, предложить пройти обучение или заполнить профиль.
+        // Время прошлого входа учитывает еще не записанные в БД входы (write-behind)
+        LocalDateTime previousLogin = lastLoginRecorder.lastLogin(user);
+        boolean isFirstLogin = previousLogin == null ||
+                previousLogin.equals(user.getCreatedAt());
+
+        // Обновление информации о последнем входе: по умолчанию отложенной пачкой, без обновления строки в транзакции входа
+        lastLoginRecorder.record(user, LocalDateTime.now());
 
         // Генерация токенов
         String accessToken = jwtService.generateAccessToken(authentication);
@@ -75,10 +94,6 @@ public class AuthService {
         long refreshExpiry = request.isRememberMe() ? REMEMBER_ME_EXPIRY : REFRESH_TOKEN_EXPIRY;
         var refreshTokenDto = refreshTokenService.createToken(user.getId(), refreshExpiry);
 
-        // Определение, первый ли это вход. Этот этап нужен для того, чтобы приложение могло по-особому отреагировать на первый вход пользователя. Например, показать ему приветственное сообщение, предложить пройти обучение или заполнить профиль.
-        boolean isFirstLogin = user.getLastLogin() == null ||
-                user.getLastLogin().equals(user.getCreatedAt());
-
         log.info("Успешная аутентификация пользователя: {}", user.getUsername());
 
         return AuthResponse.builder()
@@ -94,6 +109,38 @@ public class AuthService {
                 .build();
     }
 
+    /**
+     * Поиск пользователя для входа по email или username одним запросом.
+     * Если логин совпал с email одного пользователя и username другого, приоритет у email.
+     */
+    private Optional<User> findForLogin(String usernameOrEmail) {
+        List<User> users = userRepository.findWithRolesByEmailOrUsername(usernameOrEmail);
+        return users.stream()
+                .filter(user -> usernameOrEmail.equals(user.getEmail()))
+                .findFirst()
+                .or(() -> users.stream().findFirst());
+    }
+
+    /**
+     * Перехеширование пароля после успешного входа, если хеш не соответствует текущим алгоритму и стоимости.
+     * Ошибка не мешает входу: пароль будет перехеширован при одном из следующих входов.
+     */
+    private void rehashPasswordIfNeeded(User user, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.getPasswordHash())) {
+            return;
+        }
+        try {
+            String newHash = passwordEncoder.encode(rawPassword);
+            // Условие по старому хешу: пароль, смененный после загрузки пользователя, не затирается
+            if (userRepository.updatePasswordHash(user.getId(), user.getPasswordHash(), newHash) > 0) {
+                user.setPasswordHash(newHash);
+                log.debug("Пароль пользователя {} перехеширован с текущими параметрами", user.getUsername());
+            }
+        } catch (PasswordHashingRejectedException e) {
+            log.debug("Перехеширование пароля пользователя {} отложено: пул хеширования перегружен", user.getUsername());
+        }
+    }
+
     /**
      * Генерация AuthResponse для нового пользователя
      */
@@ -158,11 +205,17 @@ public class AuthService {
     public AuthResponse refreshToken(String refreshToken) {
         log.info("Запрос на обновление токена");
 
-        // Валидация refresh токена
-        var refreshTokenEntity = refreshTokenService.validateAndGetToken(refreshToken);
+        // Атомарная ротация: старый токен отзывается и выпускается новый одним запросом.
+        // Неизвестный, отозванный или истекший токен не проходит условие UPDATE
+        var newRefreshToken = refreshTokenService.rotateToken(refreshToken, REFRESH_TOKEN_EXPIRY)
+                .orElseThrow(() -> new BusinessException("Недействительный refresh токен", ErrorCodes.INVALID_TOKEN));
 
-        User user = userRepository.findById(refreshTokenEntity.getUser().getId())
+        User user = userRepository.findWithRolesById(newRefreshToken.userId())
                 .orElseThrow(() -> new BusinessException("Пользователь не найден", ErrorCodes.USER_NOT_FOUND));
+        if (!user.getIsActive()) {
+            // Откат транзакции возвращает старый токен в прежнее состояние
+            throw new BusinessException("Аккаунт деактивирован", ErrorCodes.ACCOUNT_DISABLED);
+        }
 
         // Создание нового access токена
         UserDetails userDetails = createUserDetails(user);
@@ -172,10 +225,6 @@ public class AuthService {
 
         String newAccessToken = jwtService.generateAccessToken(authentication);
 
-        // Опционально: ротация refresh токена
-        refreshTokenService.revokeToken(refreshToken);
-        var newRefreshToken = refreshTokenService.createToken(user.getId(), REFRESH_TOKEN_EXPIRY);
-
         log.info("Токен успешно обновлен для пользователя: {}", user.getUsername());
 
         return AuthResponse.builder()
@@ -197,24 +246,21 @@ public class AuthService {
     public void logout(String token) {
         log.info("Выход из системы");
 
-        // Проверка токена, чтобы отфильтровать в принципе "не наши" токены
-        if (!jwtService.validateToken(token)) {
-            log.warn("Попытка выхода с невалидным токеном.");
-            throw new BusinessException("Невалидный токен", ErrorCodes.INVALID_TOKEN);
-        }
+        // Проверка токена, чтобы отфильтровать в принципе "не наши" токены. Токен разбирается один раз, дальше используется VerifiedToken
+        VerifiedToken verifiedToken = verifyOrThrow(token);
 
         // Добавление токена в черный список
-        tokenBlacklistService.blacklistToken(token);
+        tokenBlacklistService.blacklistToken(verifiedToken);
 
-        // Отзыв refresh токена. В jwtService.getUsernameFromToken(token) тоже происходит скрытая валидация через  .parseClaimsJws(authToken) как и в jwtService.validateToken(String authToken) (который работает через секретный ключ, без UserDetails)
-        String username = jwtService.getUsernameFromToken(token);
+        // Отзыв refresh токена
+        String username = verifiedToken.subject();
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new BusinessException("Пользователь не найден", ErrorCodes.USER_NOT_FOUND));
 
         // Отзываем только последний refresh токен
         var activeTokens = refreshTokenService.getActiveTokens(user.getId());
         if (!activeTokens.isEmpty()) {
-            refreshTokenService.revokeToken(activeTokens.get(0).token());
+            refreshTokenService.revokeToken(activeTokens.get(0).id());
         }
 
         log.info("Пользователь {} вышел из системы", username);
@@ -227,17 +273,16 @@ public class AuthService {
     public void logoutFromAllDevices(String token) {
         log.info("Выход из всех устройств");
 
-        // В jwtService.getUsernameFromToken(token) тоже происходит скрытая валидация через  .parseClaimsJws(authToken) как и в jwtService.validateToken(String authToken) (который работает через секретный ключ, без UserDetails)
-        String username = jwtService.getUsernameFromToken(token);
+        VerifiedToken verifiedToken = verifyOrThrow(token);
+        String username = verifiedToken.subject();
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new BusinessException("Пользователь не найден", ErrorCodes.USER_NOT_FOUND));
 
         // Отзываем все refresh токены пользователя
-        var activeTokens = refreshTokenService.getActiveTokens(user.getId());
-        activeTokens.forEach(t -> refreshTokenService.revokeToken(t.token()));
+        refreshTokenService.revokeAllTokens(user.getId());
 
         // Добавляем текущий access токен в черный список
-        tokenBlacklistService.blacklistToken(token);
+        tokenBlacklistService.blacklistToken(verifiedToken);
 
         log.info("Пользователь {} вышел из всех устройств", username);
     }
@@ -271,8 +316,8 @@ public class AuthService {
     public void resetPassword(String token, String newPassword) {
         log.info("Сброс пароля по токену");
 
-        // Валидация токена и получение userId
-        Long userId = tokenBlacklistService.validatePasswordResetToken(token);
+        // Валидация и погашение токена (одноразовый), получение userId
+        Long userId = tokenBlacklistService.consumePasswordResetToken(token);
 
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new BusinessException("Пользователь не найден", ErrorCodes.USER_NOT_FOUND));
@@ -281,13 +326,10 @@ public class AuthService {
         user.setPasswordHash(passwordEncoder.encode(newPassword));
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
-
-        // Удаление токена сброса
-        tokenBlacklistService.deletePasswordResetToken(token);
+        securityVersionService.bumpVersion(userId);
 
         // Отзыв всех refresh токенов (безопасность)
-        var activeTokens = refreshTokenService.getActiveTokens(user.getId());
-        activeTokens.forEach(t -> refreshTokenService.revokeToken(t.token()));
+        refreshTokenService.revokeAllTokens(user.getId());
 
         log.info("Пароль успешно сброшен для пользователя: {}", user.getUsername());
     }
@@ -332,7 +374,7 @@ public class AuthService {
      * Получение userId из токена
      */
     public Long getUserIdFromToken(String token) {
-        String username = jwtService.getUsernameFromToken(token);
+        String username = verifyOrThrow(token).subject();
         return userRepository.findByUsername(username)
                 .map(User::getId)
                 .orElseThrow(() -> new BusinessException("Пользователь не найден", ErrorCodes.USER_NOT_FOUND));
@@ -356,21 +398,15 @@ public class AuthService {
 
     // ===== Вспомогательные методы =====
 
-    private UserDetails createUserDetails(User user) {
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPasswordHash())
-                .authorities(getUserAuthorities(user))
-                .accountExpired(false)
-                .accountLocked(!user.getIsActive())
-                .credentialsExpired(false)
-                .disabled(!user.getIsActive())
-                .build();
+    private VerifiedToken verifyOrThrow(String token) {
+        return jwtService.verify(token).orElseThrow(() -> {
+            log.warn("Попытка использования невалидного токена");
+            return new BusinessException("Невалидный токен", ErrorCodes.INVALID_TOKEN);
+        });
     }
 
-    private String[] getUserAuthorities(User user) {
-        return user.getRoles().stream()
-                .map(ur -> "ROLE_" + ur.getRole().getName())
-                .toArray(String[]::new);
+    // CustomUserPrincipal (как и в CustomUserDetailsService) несет ID пользователя, который попадает в access токен
+    private UserDetails createUserDetails(User user) {
+        return CustomUserPrincipal.create(user);
     }
 }
\ No newline at end of file
@@ -3,11 +3,13 @@ package ru.s100p.user.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.s100p.user.entity.User;
+import ru.s100p.user.token.TokenStore;
 
+import java.time.Duration;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 
 
@@ -16,13 +18,17 @@ import java.util.concurrent.ConcurrentHashMap;
 @RequiredArgsConstructor
 public class EmailVerificationService {
 
-    // Временное хранилище токенов (в продакшене использовать Redis)
-    private final ConcurrentHashMap<String, Long> emailTokens = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Long> resetTokens = new ConcurrentHashMap<>();
+    private static final String EMAIL_VERIFICATION_KEY_PREFIX = "email-verification:";
+
+    // Токены верификации хранятся в общем TokenStore с TTL. Токены сброса пароля хранит TokenBlacklistService
+    private final TokenStore tokenStore;
+
+    @Value("${token-store.email-verification-ttl:24h}")
+    private Duration emailVerificationTtl;
 
     public void sendVerificationEmail(User user) {
         String token = UUID.randomUUID().toString();
-        emailTokens.put(token, user.getId());
+        tokenStore.put(EMAIL_VERIFICATION_KEY_PREFIX + token, user.getId().toString(), emailVerificationTtl);
 
         // TODO: Интеграция с email сервисом
         log.info("Отправка email верификации на {}: http://localhost:8080/api/v1/auth/verify-email?token={}",
@@ -30,26 +36,14 @@ public class EmailVerificationService {
     }
 
     public void sendPasswordResetEmail(User user, String resetToken) {
-        resetTokens.put(resetToken, user.getId());
-
         // TODO: Интеграция с email сервисом
         log.info("Отправка email для сброса пароля на {}: http://localhost:8080/api/v1/auth/reset-password?token={}",
                 user.getEmail(), resetToken);
     }
 
     public Long validateEmailToken(String token) {
-        Long userId = emailTokens.remove(token);
-        if (userId == null) {
-            throw new IllegalArgumentException("Неверный или истекший токен");
-        }
-        return userId;
-    }
-
-    public Long validatePasswordResetToken(String token) {
-        Long userId = resetTokens.remove(token);
-        if (userId == null) {
-            throw new IllegalArgumentException("Неверный или истекший токен");
-        }
-        return userId;
+        return tokenStore.getAndDelete(EMAIL_VERIFICATION_KEY_PREFIX + token)
+                .map(Long::valueOf)
+                .orElseThrow(() -> new IllegalArgumentException("Неверный или истекший токен"));
     }
-}
\ No newline at end of file
+}
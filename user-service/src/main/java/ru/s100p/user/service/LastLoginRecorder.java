@@ -0,0 +1,138 @@
+package ru.s100p.user.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.s100p.user.entity.User;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отложенная запись {@code users.last_login}.
+ *
+ * <p>В режиме {@code write-behind} (по умолчанию) вход только запоминает время в памяти — последнее значение
+ * на пользователя, — а периодическая задача записывает все накопленное одним {@code UPDATE ... FROM (VALUES ...)}
+ * на пачку. Повторные входы одного пользователя между сбросами дают одну запись, в утренний пик вместо
+ * обновления строки на каждый вход. Остаток сбрасывается при остановке; при аварийном завершении теряется
+ * не больше {@code flush-interval-ms}. Этого достаточно для {@code findInactiveUsers} и
+ * {@code deactivateInactiveUsers}, которым нужна приблизительная давность входа.</p>
+ *
+ * <p>Режим {@code synchronous} записывает время сразу, отдельным {@code UPDATE} при входе (вход выполняется
+ * вне транзакции, см. {@link AuthService#authenticate}).</p>
+ *
+ * <p>Сущность {@link User} помечена {@code @DynamicUpdate}: параллельное сохранение пользователя, загруженного
+ * до сброса, обновляет только измененные колонки и не возвращает в {@code last_login} старое значение.</p>
+ */
+@Slf4j
+@Component
+public class LastLoginRecorder {
+
+    static final String SYNCHRONOUS = "synchronous";
+    static final String WRITE_BEHIND = "write-behind";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean writeBehind;
+    private final int batchSize;
+    private final ConcurrentHashMap<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final Counter flushedRows;
+
+    public LastLoginRecorder(JdbcTemplate jdbcTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${user.last-login.mode:write-behind}") String mode,
+                             @Value("${user.last-login.batch-size:1000}") int batchSize) {
+        if (!SYNCHRONOUS.equals(mode) && !WRITE_BEHIND.equals(mode)) {
+            throw new IllegalStateException("Неизвестный режим записи last_login: " + mode);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeBehind = WRITE_BEHIND.equals(mode);
+        this.batchSize = batchSize;
+        this.flushedRows = meterRegistry.counter("user.last_login.flushed");
+        meterRegistry.gaugeMapSize("user.last_login.pending", Tags.empty(), pending);
+    }
+
+    /**
+     * Фиксация времени входа. В режиме write-behind сущность не изменяется и строка users при входе
+     * не обновляется.
+     */
+    public void record(User user, LocalDateTime loginAt) {
+        if (!writeBehind) {
+            user.setLastLogin(loginAt);
+            write(List.of(Map.entry(user.getId(), loginAt)));
+            return;
+        }
+        pending.merge(user.getId(), loginAt, LastLoginRecorder::latest);
+    }
+
+    /**
+     * Время последнего входа с учетом еще не записанного в БД (только входы через эту реплику)
+     */
+    public LocalDateTime lastLogin(User user) {
+        LocalDateTime pendingLogin = pending.get(user.getId());
+        if (pendingLogin == null) {
+            return user.getLastLogin();
+        }
+        return user.getLastLogin() == null ? pendingLogin : latest(pendingLogin, user.getLastLogin());
+    }
+
+    @Scheduled(fixedDelayString = "${user.last-login.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // Записи, добавленные во время сброса, попадут в следующий
+        List<Map.Entry<Long, LocalDateTime>> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+        for (Long userId : pending.keySet()) {
+            LocalDateTime loginAt = pending.remove(userId);
+            if (loginAt == null) {
+                continue;
+            }
+            batch.add(Map.entry(userId, loginAt));
+            if (batch.size() >= batchSize) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private void write(List<Map.Entry<Long, LocalDateTime>> batch) {
+        StringBuilder sql = new StringBuilder("UPDATE users u SET last_login = v.last_login FROM (VALUES ");
+        Object[] args = new Object[batch.size() * 2];
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?::bigint, ?::timestamp)");
+            args[i * 2] = batch.get(i).getKey();
+            args[i * 2 + 1] = Timestamp.valueOf(batch.get(i).getValue());
+        }
+        // Условие по времени: более поздний вход, записанный другой репликой, не затирается
+        sql.append(") AS v(id, last_login) WHERE u.id = v.id AND (u.last_login IS NULL OR u.last_login < v.last_login)");
+        try {
+            flushedRows.increment(jdbcTemplate.update(sql.toString(), args));
+        } catch (RuntimeException ex) {
+            // Возврат в очередь до следующего сброса
+            batch.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), LastLoginRecorder::latest));
+            log.warn("Не удалось записать last_login для {} пользователей: {}", batch.size(), ex.getMessage());
+        }
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -2,6 +2,7 @@ package ru.s100p.user.service;
 
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.s100p.user.dto.RefreshTokenDto;
@@ -11,59 +12,116 @@ import ru.s100p.user.mapper.RefreshTokenMapper;
 import ru.s100p.user.repository.RefreshTokenRepository;
 import ru.s100p.user.repository.UserRepository;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class RefreshTokenService {
 
+    /*
+     * Ротация одним запросом: старый токен отзывается, только если он действителен, и в том же операторе
+     * вставляется новый. Параллельный refresh тем же токеном ждет блокировку строки и после нее
+     * уже не проходит условие NOT is_revoked — токен нельзя обменять дважды.
+     */
+    private static final String ROTATE_SQL = """
+            WITH revoked AS (
+                UPDATE refresh_tokens SET is_revoked = true
+                WHERE token_hash = ? AND NOT is_revoked AND expires_at > ?
+                RETURNING user_id
+            )
+            INSERT INTO refresh_tokens (user_id, token_hash, expires_at, created_at, is_revoked)
+            SELECT user_id, ?, ?, ?, false FROM revoked
+            RETURNING id, user_id
+            """;
+
     private final RefreshTokenRepository refreshTokenRepository;
     private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     /**
      * Создает и сохраняет в базе данных новый refresh-токен для указанного пользователя.
      *
      * <p>Этот метод не создает JWT, а генерирует уникальную строку (UUID),
-     * которая будет служить в качестве refresh-токена. Этот токен сохраняется в базе данных
+     * которая будет служить в качестве refresh-токена. В базе данных сохраняется SHA-256 хеш этой строки
      * с привязкой к пользователю, временем создания и временем истечения срока действия.
-     * Он может быть использован в дальнейшем для получения новой пары access и refresh токенов.</p>
+     * Сам токен возвращается клиенту только здесь и может быть использован в дальнейшем для получения
+     * новой пары access и refresh токенов.</p>
      *
      * @param userId ID пользователя, для которого создается токен.
      * @param expiresInSeconds Время жизни токена в секундах.
      * @return DTO созданного refresh-токена.
-     * @throws EntityNotFoundException если пользователь с указанным ID не найден.
      */
     @Transactional
     public RefreshTokenDto createToken(Long userId, long expiresInSeconds) {
-        // 1. Находим пользователя в базе данных по его ID.
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("User not found: " + userId));
+        // 1. Ссылка на пользователя без запроса к БД: для вставки токена нужен только внешний ключ.
+        // Несуществующий пользователь отсекается ограничением внешнего ключа при вставке.
+        User user = userRepository.getReferenceById(userId);
+
+        // 2. Генерируем уникальное значение для токена с помощью UUID.
+        String tokenValue = UUID.randomUUID().toString();
 
-        // 2. Создаем новый объект RefreshToken.
+        // 3. Создаем новый объект RefreshToken, привязанный к пользователю.
         RefreshToken token = new RefreshToken();
-        // 3. Привязываем токен к найденному пользователю.
         token.setUser(user);
-        // 4. Генерируем уникальное значение для токена с помощью UUID.
-        token.setToken(UUID.randomUUID().toString());
-        // 5. Устанавливаем текущее время как время создания токена.
+        token.setTokenHash(hash(tokenValue));
+        // 4. Устанавливаем время создания и истечения срока действия токена.
         token.setCreatedAt(LocalDateTime.now());
-        // 6. Вычисляем и устанавливаем время истечения срока действия токена.
         token.setExpiresAt(LocalDateTime.now().plusSeconds(expiresInSeconds));
-        // 7. Устанавливаем флаг, что токен не отозван.
+        // 5. Устанавливаем флаг, что токен не отозван.
         token.setIsRevoked(false);
 
-        // 8. Сохраняем токен в базе данных и преобразуем его в DTO для ответа.
-        return RefreshTokenMapper.toDto(refreshTokenRepository.save(token));
+        // 6. Сохраняем токен в базе данных и преобразуем его в DTO для ответа.
+        return RefreshTokenMapper.toDto(refreshTokenRepository.save(token), tokenValue);
+    }
+
+    /**
+     * Обмен действительного refresh-токена на новый одним запросом к БД.
+     *
+     * @param tokenValue       предъявленный клиентом токен
+     * @param expiresInSeconds время жизни нового токена в секундах
+     * @return новый токен (с ID пользователя); пусто — токен неизвестен, отозван или истек
+     */
+    @Transactional
+    public Optional<RefreshTokenDto> rotateToken(String tokenValue, long expiresInSeconds) {
+        String newTokenValue = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusSeconds(expiresInSeconds);
+
+        List<RefreshTokenDto> rotated = jdbcTemplate.query(ROTATE_SQL,
+                (rs, rowNum) -> new RefreshTokenDto(rs.getLong("id"), rs.getLong("user_id"), newTokenValue,
+                        expiresAt, now, false),
+                hash(tokenValue), Timestamp.valueOf(now),
+                hash(newTokenValue), Timestamp.valueOf(expiresAt), Timestamp.valueOf(now));
+        return rotated.stream().findFirst();
     }
 
     @Transactional
     public void revokeToken(String tokenValue) {
-        RefreshToken token = refreshTokenRepository.findByToken(tokenValue)
-                .orElseThrow(() -> new EntityNotFoundException("Token not found"));
-        token.setIsRevoked(true);
-        refreshTokenRepository.save(token);
+        if (refreshTokenRepository.revokeByTokenHash(hash(tokenValue)) == 0) {
+            throw new EntityNotFoundException("Token not found");
+        }
+    }
+
+    @Transactional
+    public void revokeToken(Long tokenId) {
+        if (refreshTokenRepository.revokeById(tokenId) == 0) {
+            throw new EntityNotFoundException("Token not found");
+        }
+    }
+
+    /**
+     * Отзыв всех действующих refresh-токенов пользователя одним UPDATE
+     */
+    @Transactional
+    public void revokeAllTokens(Long userId) {
+        refreshTokenRepository.revokeAllByUserId(userId);
     }
 
     @Transactional(readOnly = true)
@@ -75,8 +133,11 @@ public class RefreshTokenService {
                 .toList();
     }
 
-    public RefreshToken validateAndGetToken(String refreshToken) {
-        return refreshTokenRepository.findByToken(refreshToken)
-                .orElseThrow(() -> new EntityNotFoundException("Token not found"));
+    private static byte[] hash(String tokenValue) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(tokenValue.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
     }
 }
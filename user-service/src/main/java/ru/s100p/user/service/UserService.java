@@ -25,6 +25,7 @@ import ru.s100p.user.mapper.UserMapper;
 import ru.s100p.user.repository.RoleRepository;
 import ru.s100p.user.repository.UserRepository;
 import ru.s100p.user.repository.UserRoleRepository;
+import ru.s100p.user.security.SecurityVersionService;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -45,6 +46,7 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final UserServiceProducer userServiceProducer;
     private final EmailVerificationService emailVerificationService;
+    private final SecurityVersionService securityVersionService;
 
     /**
      * Регистрация нового пользователя
@@ -203,6 +205,9 @@ public class UserService {
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
 
+        // Ранее выданные access токены становятся недействительными
+        securityVersionService.bumpVersion(userId);
+
         log.info("Пароль успешно изменен для пользователя: {}", userId);
     }
 
@@ -235,6 +240,7 @@ public class UserService {
         userRole.setAssignedAt(LocalDateTime.now());
 
         userRoleRepository.save(userRole);
+        securityVersionService.bumpVersion(userId);
 
         log.info("Роль {} успешно назначена пользователю {}", roleName, userId);
     }
@@ -256,6 +262,7 @@ public class UserService {
         }
 
         userRoleRepository.deleteByUser_IdAndRole_Id(userId, role.getId());
+        securityVersionService.bumpVersion(userId);
 
         log.info("Роль {} успешно отозвана у пользователя {}", roleName, userId);
     }
@@ -325,6 +332,7 @@ public class UserService {
         user.setIsActive(false);
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        securityVersionService.bumpVersion(userId);
 
         // Публикация события о деактивации
         userServiceProducer.publishUserDeactivated(user);
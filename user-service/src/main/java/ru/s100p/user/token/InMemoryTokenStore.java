@@ -0,0 +1,93 @@
+package ru.s100p.user.token;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TokenStore в памяти процесса.
+ *
+ * <p>Истекшие записи не возвращаются при чтении и удаляются фоновой очисткой. {@code getAndDelete} атомарен
+ * за счет {@link ConcurrentHashMap#remove(Object)}. Подходит для одной реплики; для нескольких нужен
+ * {@link RedisTokenStore}.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "token-store.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTokenStore implements TokenStore {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final TokenStoreMetrics metrics;
+
+    public InMemoryTokenStore(MeterRegistry meterRegistry) {
+        this.metrics = new TokenStoreMetrics(meterRegistry, "memory");
+        meterRegistry.gaugeMapSize("token.store.entries", Tags.of("backend", "memory"), entries);
+    }
+
+    @Override
+    public void put(String key, String value, Duration ttl) {
+        entries.put(key, new Entry(value, System.currentTimeMillis() + ttl.toMillis()));
+        metrics.writes(1);
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        Optional<String> value = live(entries.get(key));
+        metrics.read(value.isPresent());
+        return value;
+    }
+
+    @Override
+    public Optional<String> getAndDelete(String key) {
+        Optional<String> value = live(entries.remove(key));
+        metrics.read(value.isPresent());
+        return value;
+    }
+
+    @Override
+    public boolean delete(String key) {
+        metrics.delete();
+        return live(entries.remove(key)).isPresent();
+    }
+
+    @Override
+    public void putAll(Map<String, String> values, Duration ttl) {
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        values.forEach((key, value) -> entries.put(key, new Entry(value, expiresAt)));
+        metrics.writes(values.size());
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        Map<String, String> result = new HashMap<>();
+        for (String key : keys) {
+            live(entries.get(key)).ifPresent(value -> result.put(key, value));
+        }
+        metrics.reads(result.size(), keys.size());
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${token-store.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+
+    private static Optional<String> live(Entry entry) {
+        if (entry == null || entry.expiresAt() <= System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.value());
+    }
+
+    private record Entry(String value, long expiresAt) {
+    }
+}
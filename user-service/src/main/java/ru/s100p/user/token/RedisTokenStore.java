@@ -0,0 +1,99 @@
+package ru.s100p.user.token;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * TokenStore поверх Redis (общий для всех реплик user-service).
+ *
+ * <p>TTL задается в самой команде SET (PX), {@code getAndDelete} — это GETDEL (Redis 6.2+), пакетная запись
+ * идет одним pipeline, пакетное чтение — одной командой MGET. Работает с любым сервером, говорящим
+ * на протоколе Redis (redis из compose.yml, embedded-замена в локальном окружении).</p>
+ */
+@Component
+@ConditionalOnProperty(name = "token-store.type", havingValue = "redis")
+public class RedisTokenStore implements TokenStore {
+
+    private final StringRedisTemplate redisTemplate;
+    private final TokenStoreMetrics metrics;
+
+    public RedisTokenStore(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.metrics = new TokenStoreMetrics(meterRegistry, "redis");
+    }
+
+    @Override
+    public void put(String key, String value, Duration ttl) {
+        redisTemplate.opsForValue().set(key, value, ttl);
+        metrics.writes(1);
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        Optional<String> value = Optional.ofNullable(redisTemplate.opsForValue().get(key));
+        metrics.read(value.isPresent());
+        return value;
+    }
+
+    @Override
+    public Optional<String> getAndDelete(String key) {
+        Optional<String> value = Optional.ofNullable(redisTemplate.opsForValue().getAndDelete(key));
+        metrics.read(value.isPresent());
+        return value;
+    }
+
+    @Override
+    public boolean delete(String key) {
+        metrics.delete();
+        return Boolean.TRUE.equals(redisTemplate.delete(key));
+    }
+
+    @Override
+    public void putAll(Map<String, String> entries, Duration ttl) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Expiration expiration = Expiration.from(ttl);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            entries.forEach((key, value) ->
+                    stringConnection.set(key, value, expiration, RedisStringCommands.SetOption.upsert()));
+            return null;
+        });
+        metrics.writes(entries.size());
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        List<String> orderedKeys = new ArrayList<>(keys);
+        List<String> values = redisTemplate.opsForValue().multiGet(orderedKeys);
+
+        Map<String, String> result = new HashMap<>();
+        if (values != null) {
+            for (int i = 0; i < orderedKeys.size(); i++) {
+                if (values.get(i) != null) {
+                    result.put(orderedKeys.get(i), values.get(i));
+                }
+            }
+        }
+        metrics.reads(result.size(), orderedKeys.size());
+        return result;
+    }
+}
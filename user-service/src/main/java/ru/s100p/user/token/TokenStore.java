@@ -0,0 +1,39 @@
+package ru.s100p.user.token;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Хранилище короткоживущих одноразовых токенов (сброс пароля, подтверждение email и т.п.).
+ *
+ * <p>Все записи имеют TTL и исчезают сами. Реализации: {@link InMemoryTokenStore} (по умолчанию,
+ * одна реплика) и {@link RedisTokenStore} ({@code token-store.type=redis}, общее хранилище для всех реплик).</p>
+ */
+public interface TokenStore {
+
+    /**
+     * Сохранение значения на время ttl (существующее значение перезаписывается)
+     */
+    void put(String key, String value, Duration ttl);
+
+    Optional<String> get(String key);
+
+    /**
+     * Атомарное чтение и удаление: значение получит только один вызывающий, даже при гонке
+     */
+    Optional<String> getAndDelete(String key);
+
+    boolean delete(String key);
+
+    /**
+     * Пакетная запись с общим TTL (для Redis — одним pipeline)
+     */
+    void putAll(Map<String, String> entries, Duration ttl);
+
+    /**
+     * Пакетное чтение; в результат попадают только найденные ключи
+     */
+    Map<String, String> getAll(Collection<String> keys);
+}
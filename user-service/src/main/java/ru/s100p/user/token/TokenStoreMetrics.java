@@ -0,0 +1,39 @@
+package ru.s100p.user.token;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Счетчики операций TokenStore: {@code token.store.requests{backend, op, result}}
+ */
+final class TokenStoreMetrics {
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter writes;
+    private final Counter deletes;
+
+    TokenStoreMetrics(MeterRegistry meterRegistry, String backend) {
+        this.hits = meterRegistry.counter("token.store.requests", "backend", backend, "op", "read", "result", "hit");
+        this.misses = meterRegistry.counter("token.store.requests", "backend", backend, "op", "read", "result", "miss");
+        this.writes = meterRegistry.counter("token.store.requests", "backend", backend, "op", "write", "result", "ok");
+        this.deletes = meterRegistry.counter("token.store.requests", "backend", backend, "op", "delete", "result", "ok");
+    }
+
+    void read(boolean hit) {
+        (hit ? hits : misses).increment();
+    }
+
+    void reads(int hitCount, int total) {
+        hits.increment(hitCount);
+        misses.increment(total - hitCount);
+    }
+
+    void writes(int count) {
+        writes.increment(count);
+    }
+
+    void delete() {
+        deletes.increment();
+    }
+}
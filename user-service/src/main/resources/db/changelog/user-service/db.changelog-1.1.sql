@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+
+-- Версии безопасности пользователей для проверки access токенов без загрузки пользователя
+
+--changeset s100p:5 (create user_security_versions table)
+CREATE TABLE user_security_versions (
+    user_id BIGINT PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+
+-- refresh_tokens: поиск по SHA-256 хешу токена вместо VARCHAR(500).
+-- Значение токена больше не хранится; idx_refresh_tokens_token дублировал индекс ограничения UNIQUE
+
+--changeset s100p:6 (refresh_tokens lookup by token hash)
+ALTER TABLE refresh_tokens ADD COLUMN token_hash BYTEA;
+UPDATE refresh_tokens SET token_hash = sha256(convert_to(token, 'UTF8'));
+ALTER TABLE refresh_tokens ALTER COLUMN token_hash SET NOT NULL;
+ALTER TABLE refresh_tokens ADD CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash);
+DROP INDEX idx_refresh_tokens_token;
+ALTER TABLE refresh_tokens DROP COLUMN token;
@@ -0,0 +1,141 @@
+package ru.s100p.user.token;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * RedisTokenStore против настоящего Redis той же версии, что в compose.yml (GETDEL требует 6.2+).
+ * Без Docker тест пропускается.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisTokenStoreTest {
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+            new GenericContainer<>(DockerImageName.parse("redis:7.2-alpine")).withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private RedisTokenStore store;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        store = new RedisTokenStore(redisTemplate, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void putExpiresAfterTtl() throws InterruptedException {
+        store.put("reset:1", "user-1", Duration.ofMillis(300));
+        assertThat(store.get("reset:1")).contains("user-1");
+
+        Thread.sleep(600);
+
+        assertThat(store.get("reset:1")).isEmpty();
+        assertThat(store.getAndDelete("reset:1")).isEmpty();
+    }
+
+    @Test
+    void putAllAppliesTtlToEveryEntry() throws InterruptedException {
+        store.putAll(Map.of("verify:1", "a", "verify:2", "b"), Duration.ofMillis(300));
+        assertThat(store.getAll(List.of("verify:1", "verify:2"))).hasSize(2);
+
+        Thread.sleep(600);
+
+        assertThat(store.getAll(List.of("verify:1", "verify:2"))).isEmpty();
+    }
+
+    @Test
+    void getAndDeleteHandsValueToExactlyOneCaller() throws Exception {
+        int callers = 16;
+        for (int round = 0; round < 20; round++) {
+            String key = "reset:race:" + round;
+            store.put(key, "user-" + round, Duration.ofMinutes(1));
+
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(callers);
+            try {
+                List<Future<Optional<String>>> results = new ArrayList<>();
+                for (int i = 0; i < callers; i++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return store.getAndDelete(key);
+                    }));
+                }
+                start.countDown();
+
+                int winners = 0;
+                for (Future<Optional<String>> result : results) {
+                    Optional<String> value = result.get();
+                    if (value.isPresent()) {
+                        assertThat(value).contains("user-" + round);
+                        winners++;
+                    }
+                }
+                assertThat(winners).isEqualTo(1);
+                assertThat(store.get(key)).isEmpty();
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void getAllMatchesValuesToKeysAcrossMisses() {
+        store.put("k1", "v1", Duration.ofMinutes(1));
+        store.put("k3", "v3", Duration.ofMinutes(1));
+        store.put("k5", "v5", Duration.ofMinutes(1));
+
+        // Пропуски в начале, середине и конце: MGET возвращает null на их местах, сдвига быть не должно
+        Map<String, String> found = store.getAll(List.of("k0", "k1", "k2", "k3", "k4", "k5", "k6"));
+
+        assertThat(found).containsExactlyInAnyOrderEntriesOf(Map.of("k1", "v1", "k3", "v3", "k5", "v5"));
+    }
+
+    @Test
+    void getAllWithOnlyMissesReturnsEmptyMap() {
+        assertThat(store.getAll(List.of("missing:1", "missing:2"))).isEmpty();
+        assertThat(store.getAll(List.of())).isEmpty();
+    }
+}